@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+// Lexes many .iq files in parallel on a ForkJoinPool.
+//
+//   java BatchLexer [-j threads] [-q] [--mapped | --shared-globals] [--verify] <dir | file | glob>...
+//
+// Directories are searched recursively for .iq files; an argument with
+// glob characters (e.g. "src/**/*.iq") is matched under its leading
+// directory, "**/" matching zero or more directories. Files are submitted largest first, so the long ones start
+// early and the small ones fill in the gaps at the end; idle workers steal
+// queued files. Every file gets its own LexicalAnalyser (or ByteScanner
+// with --mapped) and so its own SymbolTable; the scanner tables and rules
+// are shared, read only. As in Main, the scanner is the table-driven one
+// when a table file is given with -Diq.lexer.tables, else the hand-written one.
+//
+// With --shared-globals the files are one program: their global symbols
+// share one GlobalSymbolTable. Every file is lexed and declares its globals
+// in parallel; then, with all globals known, every file resolves its
+// identifiers in parallel, its nested scopes in a table of its own. A
+// global declared again in a later file is a redeclaration, and the tokens
+// counted are the lexical ones (IncrementalLexer.lex).
+//
+// Results are printed in path order whatever order the files finished in,
+// followed by the aggregate throughput. --verify lexes every file again on
+// one thread and reports any file whose tokens or errors differ.
+public class BatchLexer {
+    private static final String EXTENSION = ".iq";
+
+    // Outcome of lexing one file
+    static class FileResult {
+        final Path path;
+        long bytes;
+        int tokenCount;
+        List<String> errors = new ArrayList<>();
+        long digest;          // hash of every token's type, start and length
+        long nanos;           // time spent lexing, including the read or map
+        String failure;       // I/O error message, or null
+
+        FileResult(Path path) {
+            this.path = path;
+        }
+
+        boolean sameTokensAs(FileResult other) {
+            return tokenCount == other.tokenCount && digest == other.digest
+                    && errors.equals(other.errors) && (failure == null) == (other.failure == null);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        boolean mapped = false;
+        boolean shared = false;
+        boolean verify = false;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-q":
+                    quiet = true;
+                    break;
+                case "--mapped":
+                    mapped = true;
+                    break;
+                case "--shared-globals":
+                    shared = true;
+                    break;
+                case "--verify":
+                    verify = true;
+                    break;
+                default:
+                    inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty() || (mapped && shared)) {
+            System.err.println("Usage: java BatchLexer [-j threads] [-q] [--mapped | --shared-globals] [--verify] <dir | file | glob>...");
+            return;
+        }
+
+        List<Path> files = collectFiles(inputs);
+        System.out.println("Lexing " + files.size() + " files on " + threads + " threads");
+
+        long start = System.nanoTime();
+        GlobalSymbolTable globals = shared ? new GlobalSymbolTable() : null;
+        FileResult[] results = shared ? lexAllShared(files, threads, globals) : lexAll(files, threads, mapped);
+        long wall = System.nanoTime() - start;
+
+        long bytes = 0;
+        long tokens = 0;
+        long errors = 0;
+        long busy = 0;
+        for (FileResult result : results) {
+            bytes += result.bytes;
+            tokens += result.tokenCount;
+            errors += result.errors.size();
+            busy += result.nanos;
+            if (result.failure != null) {
+                System.out.println(result.path + ": " + result.failure);
+            } else if (!quiet) {
+                System.out.printf("%s: %d tokens, %d errors%n", result.path, result.tokenCount, result.errors.size());
+                for (String error : result.errors) {
+                    System.out.println("    " + error);
+                }
+            }
+        }
+
+        double seconds = wall / 1e9;
+        System.out.println("===========================================");
+        System.out.printf("%d files, %.2f MB, %d tokens, %d errors in %.3f s%n",
+                results.length, bytes / 1e6, tokens, errors, seconds);
+        System.out.printf("%.1f files/s  %.2f MB/s  %.0f tokens/s  (worker time / wall time %.2f)%n",
+                results.length / seconds, bytes / 1e6 / seconds, tokens / seconds,
+                (wall > 0) ? (double) busy / wall : 0.0);
+        if (shared) {
+            System.out.println(globals.size() + " global symbols");
+        }
+
+        if (verify) {
+            FileResult[] sequential = shared ? lexAllShared(files, 1, new GlobalSymbolTable()) : null;
+            int mismatches = 0;
+            for (int i = 0; i < results.length; i++) {
+                FileResult again = shared ? sequential[i] : lexFile(results[i].path, mapped);
+                if (!again.sameTokensAs(results[i])) {
+                    System.out.println("MISMATCH: " + results[i].path);
+                    mismatches++;
+                }
+            }
+            System.out.println("Verified against a sequential run: " + mismatches + " mismatches");
+        }
+    }
+
+    // Lex every file on a pool of the given size; results are in the order of files
+    static FileResult[] lexAll(List<Path> files, int threads, boolean mapped) throws IOException {
+        Integer[] order = largestFirst(files);
+        FileResult[] results = new FileResult[files.size()];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            runAll(pool, order, index -> results[index] = lexFile(files.get(index), mapped));
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    // Lex every file and resolve them against one global scope, in two
+    // parallel passes with the globals frozen in between
+    static FileResult[] lexAllShared(List<Path> files, int threads, GlobalSymbolTable globals) throws IOException {
+        Integer[] order = largestFirst(files);
+        FileResult[] results = new FileResult[files.size()];
+        TokenBuffer[] tokens = new TokenBuffer[files.size()];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            runAll(pool, order, index -> {
+                results[index] = new FileResult(files.get(index));
+                tokens[index] = declareFile(results[index], index, globals);
+            });
+            globals.freeze();
+            runAll(pool, order, index -> resolveFile(results[index], tokens[index], index, globals));
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    // File indexes largest first, ties broken by position so the schedule is repeatable
+    private static Integer[] largestFirst(List<Path> files) throws IOException {
+        long[] sizes = new long[files.size()];
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) {
+            sizes[i] = Files.size(files.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> -sizes[i]).thenComparingInt(i -> i));
+        return order;
+    }
+
+    // Run task for every index in order on the pool and wait for all of them
+    private static void runAll(ForkJoinPool pool, Integer[] order, IntConsumer task) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(order.length);
+        for (int index : order) {
+            tasks.add(pool.submit(() -> task.accept(index)));
+        }
+        // join() also makes every result written by a worker visible here
+        for (ForkJoinTask<?> submitted : tasks) {
+            submitted.join();
+        }
+    }
+
+    // First pass of a shared run: lex a file and declare its globals.
+    // Returns its lexical tokens, or null if it could not be read.
+    static TokenBuffer declareFile(FileResult result, int index, GlobalSymbolTable globals) {
+        long start = System.nanoTime();
+        TokenBuffer tokens = null;
+        try {
+            byte[] content = Files.readAllBytes(result.path);
+            result.bytes = content.length;
+            tokens = IncrementalLexer.lex(new String(content, StandardCharsets.UTF_8));
+            DeclarationTracker declarations = new DeclarationTracker(new SymbolTable(globals, index));
+            TokenBuffer.Cursor cursor = tokens.cursor();
+            while (cursor.next()) {
+                if (cursor.getType() != TokenType.ERROR) {
+                    declarations.accept(cursor); // errors wait for the second pass
+                }
+            }
+        } catch (IOException e) {
+            result.failure = e.toString();
+        }
+        result.nanos = System.nanoTime() - start;
+        return tokens;
+    }
+
+    // Second pass of a shared run: resolve a file against the frozen globals
+    static void resolveFile(FileResult result, TokenBuffer tokens, int index, GlobalSymbolTable globals) {
+        if (tokens == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        LineIndex lines = tokens.getLineIndex();
+        DeclarationTracker declarations = new DeclarationTracker(new SymbolTable(globals, index));
+        TokenBuffer.Cursor cursor = tokens.cursor();
+        while (cursor.next()) {
+            String error = (cursor.getType() == TokenType.ERROR) ? cursor.getLexeme() : declarations.accept(cursor);
+            if (error != null) {
+                result.errors.add(String.format("Lexical error at line %d, column %d: %s",
+                        lines.lineOf(cursor.getStart()), lines.columnOf(cursor.getStart()), error));
+            }
+        }
+        result.tokenCount = tokens.size();
+        result.digest = digest(tokens);
+        result.nanos += System.nanoTime() - start;
+    }
+
+    // Lex one file with a scanner of its own
+    static FileResult lexFile(Path path, boolean mapped) {
+        FileResult result = new FileResult(path);
+        long start = System.nanoTime();
+        try {
+            TokenBuffer tokens;
+            if (mapped) {
+                ByteScanner scanner = ByteScanner.map(path);
+                tokens = scanner.tokenizeToBuffer();
+                result.errors = scanner.getErrors();
+                result.bytes = Files.size(path);
+            } else {
+                byte[] content = Files.readAllBytes(path);
+                LexicalAnalyser lexer = new LexicalAnalyser(new String(content, StandardCharsets.UTF_8),
+                        ScanMode.forCommandLine());
+                tokens = lexer.tokenizeToBuffer();
+                result.errors = lexer.getErrors();
+                result.bytes = content.length;
+            }
+            result.tokenCount = tokens.size();
+            result.digest = digest(tokens);
+        } catch (IOException e) {
+            result.failure = e.toString();
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // Hash of every token's type, start and length
+    private static long digest(TokenBuffer tokens) {
+        long digest = 1;
+        for (int i = 0; i < tokens.size(); i++) {
+            digest = 31 * digest + tokens.getType(i).ordinal();
+            digest = 31 * digest + tokens.getStart(i);
+            digest = 31 * digest + tokens.getLength(i);
+        }
+        return digest;
+    }
+
+    // The .iq files named by the arguments, sorted and without duplicates.
+    // An argument that matches no file is reported on stderr.
+    static List<Path> collectFiles(List<String> inputs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (String input : inputs) {
+            int before = files.size();
+            int glob = indexOfGlob(input);
+            if (glob < 0) {
+                Path path = Paths.get(input);
+                if (Files.isDirectory(path)) {
+                    addMatching(files, path, FileSystems.getDefault().getPathMatcher("glob:**" + EXTENSION));
+                } else if (Files.exists(path)) {
+                    files.add(path.normalize());
+                } else {
+                    throw new IOException("No such file or directory: " + input);
+                }
+            } else {
+                // Search the directory the pattern starts with
+                int slash = input.lastIndexOf('/', glob);
+                Path base = (slash < 0) ? Paths.get(".") : Paths.get(input.substring(0, slash + 1));
+                String pattern = (slash < 0) ? "./" + input : input;
+                for (String variant : globVariants(pattern)) {
+                    addMatching(files, base, FileSystems.getDefault().getPathMatcher("glob:" + variant));
+                }
+            }
+            if (files.size() == before) {
+                System.err.println("Warning: no " + EXTENSION + " files match " + input);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    // The pattern with every subset of its "**/" removed. Java's "**/" needs
+    // at least one directory, so "src/**/*.iq" alone would miss src/a.iq;
+    // here "**/" also matches no directory at all, as in most shells.
+    static List<String> globVariants(String pattern) {
+        List<String> variants = new ArrayList<>();
+        int at = pattern.indexOf("**/");
+        if (at < 0) {
+            variants.add(pattern);
+            return variants;
+        }
+        String head = pattern.substring(0, at);
+        for (String tail : globVariants(pattern.substring(at + 3))) {
+            variants.add(head + "**/" + tail);
+            variants.add(head + tail);
+        }
+        return variants;
+    }
+
+    private static void addMatching(TreeSet<Path> files, Path base, PathMatcher matcher) throws IOException {
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(base)) {
+            walk.filter(Files::isRegularFile)
+                .filter(matcher::matches)
+                .forEach(path -> files.add(path.normalize()));
+        }
+    }
+
+    private static int indexOfGlob(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Zero-copy tokenizer for UTF-8 (or plain ASCII) sources. The file is
+// memory-mapped and the DFA tables are run over the bytes directly, so the
+// source is neither copied onto the heap nor decoded to UTF-16 up front.
+//
+// Token offsets and lengths are byte offsets into the mapping; line and
+// column are the same as LexicalAnalyser reports for the decoded text.
+// Tokens go into a TokenBuffer, which decodes a lexeme from the mapping only
+// when it is asked for; identifiers, keywords and operators are interned.
+//
+// Bytes >= 0x80 can only appear in character literals, comments and errors,
+// so UTF-8 is decoded (and validated) only where the scan meets one: a
+// malformed sequence reads as the U+FFFD characters new String(bytes, UTF_8)
+// would give, so tokens and columns match LexicalAnalyser on that text. A
+// supplementary character is fed to the DFA as its surrogate pair; as in
+// every front-end, it is one character, never split between two tokens or
+// reported as two errors.
+public class ByteScanner {
+    private final ByteBuffer bytes;
+    private final int length;
+    private final LineIndex lines;
+    private final TokenBuffer tokens;
+    private final TokenBuffer.Cursor lastToken; // flyweight over the token just added
+    private final List<String> errors;
+    private final DeclarationTracker declarations;
+    private final LexemePool lexemes;
+    private final int[] ruleLexemeIds;
+
+    // Set by decodeAt: bytes taken by the last decoded character
+    private int decodedLength;
+
+    // Scan bytes[position, limit)
+    public ByteScanner(ByteBuffer bytes) {
+        this.bytes = bytes.slice();
+        this.length = this.bytes.limit();
+        this.lines = new LineIndex(this.bytes);
+        this.lexemes = new LexemePool();
+        this.ruleLexemeIds = lexemes.internSpellings(LexerRules.getRules());
+        this.tokens = new TokenBuffer(this.bytes, lines, lexemes);
+        this.lastToken = tokens.cursor();
+        this.errors = new ArrayList<>();
+        this.declarations = new DeclarationTracker();
+    }
+
+    // Map a source file read-only. The mapping stays valid after the channel
+    // is closed and is released when the scanner is garbage collected.
+    public static ByteScanner map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map (" + size + " bytes); use TokenStream");
+            }
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new ByteScanner(mapping);
+        }
+    }
+
+    public LineIndex getLineIndex() {
+        return lines;
+    }
+
+    // Interned identifiers, keywords and operators of this source
+    public LexemePool getLexemePool() {
+        return lexemes;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return declarations.getSymbolTable();
+    }
+
+    // Scopes of the source by byte offset, for visibility queries
+    public ScopeTree getScopeTree() {
+        return declarations.getScopeTree();
+    }
+
+    // Def-use index of the identifiers in the source
+    public ReferenceIndex getReferenceIndex() {
+        return declarations.getReferenceIndex();
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    // Tokens as a List view over the TokenBuffer
+    public List<Token> tokenize() {
+        return tokenizeToBuffer().asList();
+    }
+
+    // Same maximal-munch loop as LexicalAnalyser's table-driven scan, over bytes
+    public TokenBuffer tokenizeToBuffer() {
+        ScannerTables tables = ScannerTables.getInstance();
+        CompactDFA dfa = tables.getDFA();
+        int[] asciiClasses = tables.getAsciiClasses();
+        int[] transitions = tables.getTransitions();
+        int[] acceptRules = tables.getAcceptRules();
+        int classCount = tables.getClassCount();
+        int startState = tables.getStartState();
+        List<LexerRules.Rule> rules = LexerRules.getRules();
+
+        ByteBuffer input = bytes;
+        int position = 0;
+
+        while (position < length) {
+            position = skipTrivia(position);
+            if (position == length) {
+                break;
+            }
+
+            // Run the DFA as far as it goes; a match can only end on a
+            // character boundary
+            int state = startState;
+            int acceptedRule = -1;
+            int acceptedEnd = position;
+            int hash = 0; // LexemePool hash, only needed for (ASCII) identifiers
+            int acceptedHash = 0;
+            int i = position;
+            while (i < length) {
+                int b = input.get(i);
+                if (b >= 0) {
+                    state = transitions[state * classCount + asciiClasses[b]];
+                    hash = LexemePool.step(hash, b);
+                    i++;
+                } else {
+                    int codePoint = decodeAt(i);
+                    i += decodedLength;
+                    if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                        state = transitions[state * classCount + dfa.classOf((char) codePoint)];
+                    } else {
+                        state = transitions[state * classCount + dfa.classOf(Character.highSurrogate(codePoint))];
+                        if (state >= 0) {
+                            state = transitions[state * classCount + dfa.classOf(Character.lowSurrogate(codePoint))];
+                        }
+                    }
+                }
+                if (state < 0) {
+                    break;
+                }
+                if (acceptRules[state] >= 0) {
+                    acceptedRule = acceptRules[state];
+                    acceptedEnd = i;
+                    acceptedHash = hash;
+                }
+            }
+
+            position = emitMatch(position, acceptedRule, acceptedEnd, acceptedHash, rules);
+        }
+
+        tokens.add(TokenType.EOF, length, 0);
+        return tokens;
+    }
+
+    // Turn the longest match at position into a token or an error and return
+    // the position after it. With no match one character is reported and skipped.
+    private int emitMatch(int position, int acceptedRule, int acceptedEnd, int acceptedHash,
+                          List<LexerRules.Rule> rules) {
+        if (acceptedRule < 0) {
+            int codePoint = decodeAt(position);
+            int end = position + decodedLength;
+            reportError(position, end, "Unexpected character: " + new String(Character.toChars(codePoint)));
+            return end;
+        }
+
+        LexerRules.Rule rule = rules.get(acceptedRule);
+        int tokenLength = acceptedEnd - position;
+        if (rule.isError()) {
+            reportError(position, acceptedEnd, rule.getErrorMessage());
+        } else if (rule.getType() == TokenType.INTEGER_LITERAL && !fitsInInt(position, acceptedEnd)) {
+            reportError(position, acceptedEnd, "Invalid integer format: " + decode(position, tokenLength));
+        } else {
+            int lexemeId = (rule.getType() == TokenType.IDENTIFIER)
+                    ? lexemes.intern(bytes, position, acceptedEnd, acceptedHash)
+                    : ruleLexemeIds[acceptedRule];
+            tokens.add(rule.getType(), position, tokenLength, lexemeId);
+            lastToken.moveTo(tokens.size() - 1);
+            String declarationError = declarations.accept(lastToken);
+            if (declarationError != null) {
+                reportError(position, acceptedEnd, declarationError);
+            }
+        }
+        return acceptedEnd;
+    }
+
+    // Skip whitespace, // line comments and /* block comments */ starting at
+    // p, as LexicalAnalyser.skipTrivia does. Comment bodies are skipped
+    // bytewise: no byte of a multi-byte character is '\n', '\r', '*' or '/'.
+    private int skipTrivia(int p) {
+        while (p < length) {
+            int b = bytes.get(p);
+            if (b >= 0 && Character.isWhitespace(b)) {
+                p++;
+            } else if (b < 0 && Character.isWhitespace(decodeAt(p))) {
+                p += decodedLength;
+            } else if (b == '/' && p + 1 < length && bytes.get(p + 1) == '/') {
+                p += 2;
+                while (p < length && bytes.get(p) != '\n' && bytes.get(p) != '\r') {
+                    p++;
+                }
+            } else if (b == '/' && p + 1 < length && bytes.get(p + 1) == '*') {
+                p += 2;
+                while (p < length && !(bytes.get(p) == '*' && p + 1 < length && bytes.get(p + 1) == '/')) {
+                    p++;
+                }
+                p = Math.min(p + 2, length);
+            } else {
+                break;
+            }
+        }
+        return p;
+    }
+
+    // Decode the UTF-8 character starting at p and set decodedLength
+    private int decodeAt(int p) {
+        int count = sequenceLength(bytes, length, p);
+        decodedLength = Math.abs(count);
+        int b0 = bytes.get(p) & 0xff;
+        if (count < 0) {
+            return 0xfffd;
+        } else if (count == 1) {
+            return b0;
+        }
+        int codePoint = b0 & (0x7f >> count);
+        for (int k = 1; k < count; k++) {
+            codePoint = (codePoint << 6) | (bytes.get(p + k) & 0x3f);
+        }
+        return codePoint;
+    }
+
+    // Bytes taken by the UTF-8 character at p, negated if they are malformed
+    // and read as one U+FFFD. That is each maximal subpart (the longest
+    // prefix of a valid sequence, or else one byte) and, as in the JDK
+    // decoder, a whole encoded surrogate (ED A0-BF ..): the U+FFFD characters
+    // new String(bytes, UTF_8) gives.
+    static int sequenceLength(ByteBuffer bytes, int length, int p) {
+        int b0 = bytes.get(p) & 0xff;
+        int count;
+        int low = 0x80;            // range of the second byte
+        int high = 0xbf;
+        if (b0 < 0x80) {
+            return 1;
+        } else if (b0 >= 0xc2 && b0 <= 0xdf) {
+            count = 2;
+        } else if (b0 >= 0xe0 && b0 <= 0xef) {
+            count = 3;
+            low = (b0 == 0xe0) ? 0xa0 : 0x80;
+        } else if (b0 >= 0xf0 && b0 <= 0xf4) {
+            count = 4;
+            low = (b0 == 0xf0) ? 0x90 : 0x80;
+            high = (b0 == 0xf4) ? 0x8f : 0xbf;
+        } else {
+            return -1;
+        }
+        for (int k = 1; k < count; k++) {
+            int b = (p + k < length) ? bytes.get(p + k) & 0xff : -1;
+            if (b < ((k == 1) ? low : 0x80) || b > ((k == 1) ? high : 0xbf)) {
+                return -k;
+            }
+        }
+        return (b0 == 0xed && (bytes.get(p + 1) & 0xff) >= 0xa0) ? -3 : count;
+    }
+
+    // Whether the ASCII digits in bytes[start, end) fit in an int, as
+    // LexicalAnalyser.fitsInInt checks for the decoded lexeme
+    private boolean fitsInInt(int start, int end) {
+        long value = 0;
+        for (int p = start; p < end; p++) {
+            value = value * 10 + (bytes.get(p) - '0');
+            if (value > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int start, int count) {
+        byte[] copy = new byte[count];
+        bytes.get(start, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    // Error reporting for the byte range [start, end)
+    private void reportError(int start, int end, String message) {
+        errors.add(String.format("Lexical error at line %d, column %d: %s",
+                lines.lineOf(start), lines.columnOf(start), message));
+        tokens.addError(message, start, end - start);
+    }
+}
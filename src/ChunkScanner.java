@@ -0,0 +1,176 @@
+import java.util.List;
+
+// One piece of a source lexed on its own for LexicalAnalyser's PARALLEL
+// mode. The source is cut just after line breaks, and each chunk is lexed
+// with the table-driven DFA as if its first character began a token. That
+// guess is wrong when the cut falls inside a block comment or a character
+// literal holding a line break; the stitching pass then rescans from where
+// the previous chunk really ended until it reaches a token start this
+// chunk also found, and keeps this chunk's tokens from there on.
+//
+// A chunk has its own TokenBuffer and LexemePool and touches nothing
+// shared except the read-only source and scanner tables, so chunks can be
+// lexed on different threads. Its error tokens carry just the message;
+// positions are resolved and the symbol table is built when the chunks
+// are merged, in order, on one thread.
+//
+// IncrementalLexer uses the same token-at-a-time scan to re-lex the text
+// around an edit.
+class ChunkScanner {
+    private final char[] source;
+    private final int length;
+    private final int start;
+    private final int end;
+    private int exit;
+
+    private final ScannerTables tables;
+    private final List<LexerRules.Rule> rules;
+    private final LexemePool lexemes;
+    private final int[] ruleLexemeIds;
+    private final TokenBuffer tokens;
+
+    // Scans the tokens that start in source[start, end). The line index is
+    // only used by the merging thread, for symbol positions.
+    ChunkScanner(char[] source, int length, LineIndex lines, int start, int end) {
+        this(source, length, lines, new LexemePool(), start, end);
+    }
+
+    // Same, interning lexemes into an existing pool; the scanner then must
+    // not run alongside other users of that pool
+    ChunkScanner(char[] source, int length, LineIndex lines, LexemePool lexemes, int start, int end) {
+        this.source = source;
+        this.length = length;
+        this.start = start;
+        this.end = end;
+        this.exit = start;
+        this.tables = ScannerTables.getInstance();
+        this.rules = LexerRules.getRules();
+        this.lexemes = lexemes;
+        this.ruleLexemeIds = lexemes.internSpellings(rules);
+        this.tokens = new TokenBuffer(source, lines, lexemes);
+    }
+
+    // Cut source[0, length) into at most count chunks, each ending just
+    // after a line break (the last one at length)
+    static ChunkScanner[] split(char[] source, int length, LineIndex lines, int count) {
+        int[] bounds = new int[count + 1];
+        int chunks = 0;
+        for (int i = 1; i < count; i++) {
+            int p = Math.max((int) ((long) length * i / count), bounds[chunks]);
+            while (p < length && source[p] != '\n') {
+                p++;
+            }
+            if (p + 1 < length) {
+                bounds[++chunks] = p + 1;
+            }
+        }
+        bounds[++chunks] = length;
+
+        ChunkScanner[] scanners = new ChunkScanner[chunks];
+        for (int i = 0; i < chunks; i++) {
+            scanners[i] = new ChunkScanner(source, length, lines, bounds[i], bounds[i + 1]);
+        }
+        return scanners;
+    }
+
+    // Lex every token starting before end; the last one may run past it
+    void scan() {
+        int position = start;
+        while (true) {
+            position = LexicalAnalyser.skipTrivia(source, length, position);
+            if (position >= end) {
+                break;
+            }
+            position = scanToken(position);
+        }
+        exit = position;
+    }
+
+    // Lex the token at position, which must not be trivia, and return its end
+    int scanToken(int position) {
+        CompactDFA dfa = tables.getDFA();
+        int[] asciiClasses = tables.getAsciiClasses();
+        int[] transitions = tables.getTransitions();
+        int[] acceptRules = tables.getAcceptRules();
+        int classCount = tables.getClassCount();
+
+        int state = tables.getStartState();
+        int acceptedRule = -1;
+        int acceptedEnd = position;
+        int hash = 0;
+        int acceptedHash = 0;
+        for (int i = position; i < length; i++) {
+            char c = source[i];
+            int symbolClass = (c < ScannerTables.ASCII_SIZE) ? asciiClasses[c] : dfa.classOf(c);
+            state = transitions[state * classCount + symbolClass];
+            if (state < 0) {
+                break;
+            }
+            hash = LexemePool.step(hash, c);
+            if (acceptRules[state] >= 0) {
+                acceptedRule = acceptRules[state];
+                acceptedEnd = i + 1;
+                acceptedHash = hash;
+            }
+        }
+
+        if (acceptedRule < 0) {
+            int count = LexicalAnalyser.charCount(source, length, position);
+            tokens.addError("Unexpected character: " + new String(source, position, count), position, count);
+            return position + count;
+        }
+        LexerRules.Rule rule = rules.get(acceptedRule);
+        if (rule.isError()) {
+            tokens.addError(rule.getErrorMessage(), position, acceptedEnd - position);
+        } else if (rule.getType() == TokenType.INTEGER_LITERAL
+                && !LexicalAnalyser.fitsInInt(source, position, acceptedEnd)) {
+            tokens.addError("Invalid integer format: " + new String(source, position, acceptedEnd - position),
+                    position, acceptedEnd - position);
+        } else {
+            int lexemeId = (rule.getType() == TokenType.IDENTIFIER)
+                    ? lexemes.intern(source, position, acceptedEnd, acceptedHash)
+                    : ruleLexemeIds[acceptedRule];
+            tokens.add(rule.getType(), position, acceptedEnd - position, lexemeId);
+        }
+        return acceptedEnd;
+    }
+
+    // Index of the token starting at position, or -1
+    int indexOfStart(int position) {
+        int low = 0;
+        int high = tokens.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midStart = tokens.getStart(mid);
+            if (midStart < position) {
+                low = mid + 1;
+            } else if (midStart > position) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    int getEnd() {
+        return end;
+    }
+
+    // Where scanning stopped: at or past end
+    int getExit() {
+        return exit;
+    }
+
+    TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    LexemePool getLexemePool() {
+        return lexemes;
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Array-backed form of a DFA, produced by DFA.compact(). Characters are first
+// mapped to equivalence classes (characters no state distinguishes share a
+// class), then transitions live in one int[stateCount * classCount] table.
+// Class 0 holds every character without any transition; -1 is the dead state.
+// ASCII characters are classified by direct lookup, everything else by a
+// binary search over the interval boundaries of the character space.
+public class CompactDFA {
+    static final int ASCII_SIZE = 128;
+
+    private final int startState;
+    private final int stateCount;
+    private final int classCount;
+    private final int[] asciiClasses;
+    private final char[] intervalStarts;
+    private final int[] intervalClasses;
+    private final int[] transitions;
+    private final BitSet acceptStates;
+    private final int[] acceptLabels;
+
+    CompactDFA(int startState, int stateCount, int classCount, char[] intervalStarts, int[] intervalClasses,
+               int[] transitions, BitSet acceptStates, int[] acceptLabels) {
+        this.startState = startState;
+        this.stateCount = stateCount;
+        this.classCount = classCount;
+        this.intervalStarts = intervalStarts;
+        this.intervalClasses = intervalClasses;
+        this.asciiClasses = new int[ASCII_SIZE];
+        for (char symbol = 0; symbol < ASCII_SIZE; symbol++) {
+            asciiClasses[symbol] = intervalClass(symbol);
+        }
+        this.transitions = transitions;
+        this.acceptStates = acceptStates;
+        this.acceptLabels = acceptLabels;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    // Equivalence class of a character
+    public int classOf(char symbol) {
+        return symbol < ASCII_SIZE ? asciiClasses[symbol] : intervalClass(symbol);
+    }
+
+    private int intervalClass(char symbol) {
+        int interval = Arrays.binarySearch(intervalStarts, symbol);
+        return intervalClasses[interval >= 0 ? interval : -interval - 2];
+    }
+
+    // Next state, or -1 if the DFA dies on this symbol
+    public int step(int state, char symbol) {
+        return transitions[state * classCount + classOf(symbol)];
+    }
+
+    public boolean isAccepting(int state) {
+        return acceptStates.get(state);
+    }
+
+    // Token rule accepted in a state, or -1
+    public int getAcceptLabel(int state) {
+        return acceptLabels[state];
+    }
+
+    // Whether the whole input is accepted
+    public boolean run(CharSequence input) {
+        int state = startState;
+        for (int i = 0; i < input.length(); i++) {
+            state = transitions[state * classCount + classOf(input.charAt(i))];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return acceptStates.get(state);
+    }
+
+    // Raw tables for scanners that inline the step loop. Callers must not modify them.
+    int[] getAsciiClasses() {
+        return asciiClasses;
+    }
+
+    char[] getIntervalStarts() {
+        return intervalStarts;
+    }
+
+    int[] getIntervalClasses() {
+        return intervalClasses;
+    }
+
+    int[] getTransitions() {
+        return transitions;
+    }
+
+    int[] getAcceptLabels() {
+        return acceptLabels;
+    }
+
+    BitSet getAcceptStates() {
+        return acceptStates;
+    }
+
+    public void displaySummary() {
+        System.out.println("Compact DFA: " + stateCount + " states, " + classCount
+                + " character classes, " + transitions.length + " table entries");
+    }
+}
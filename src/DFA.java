@@ -1,5 +1,10 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -7,17 +12,28 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class DFA {
     private int startState;
     private Set<Integer> acceptStates;
+    private Map<Integer, Integer> acceptLabels;
     private Map<Integer, Map<Character, Integer>> transitions;
     private int stateCount;
+    private int unminimizedStateCount;
+    // First characters of the intervals the character space is split into
+    // when transitions were built from character ranges. Transitions are then
+    // keyed by an interval's first character. Null means every character is
+    // its own symbol.
+    private char[] intervalStarts;
     
     public DFA() {
         this.acceptStates = new HashSet<>();
+        this.acceptLabels = new HashMap<>();
         this.transitions = new HashMap<>();
         this.stateCount = 0;
+        this.unminimizedStateCount = 0;
     }
     
     public void setStartState(int state) {
@@ -28,6 +44,71 @@ public class DFA {
         this.acceptStates.add(state);
     }
     
+    // Record the token rule an accept state stands for; lower labels win
+    public void setAcceptLabel(int state, int label) {
+        Integer current = acceptLabels.get(state);
+        if (current == null || label < current) {
+            acceptLabels.put(state, label);
+        }
+    }
+    
+    public int getAcceptLabel(int state) {
+        return acceptLabels.getOrDefault(state, -1);
+    }
+    
+    public int getStartState() {
+        return startState;
+    }
+    
+    public boolean isAccepting(int state) {
+        return acceptStates.contains(state);
+    }
+    
+    // Target of a transition, or -1 if there is none
+    public int getTransition(int fromState, char symbol) {
+        Map<Character, Integer> stateTransitions = transitions.get(fromState);
+        if (stateTransitions == null) {
+            return -1;
+        }
+        Integer target = stateTransitions.get(symbolKey(symbol));
+        return target == null ? -1 : target;
+    }
+    
+    // Key under which transitions on a character are stored
+    private char symbolKey(char symbol) {
+        if (intervalStarts == null) {
+            return symbol;
+        }
+        int interval = Arrays.binarySearch(intervalStarts, symbol);
+        return intervalStarts[interval >= 0 ? interval : -interval - 2];
+    }
+    
+    // Interval boundaries of the character space. DFAs over single characters
+    // get one interval per used character plus the gaps between them.
+    public char[] getIntervalStarts() {
+        if (intervalStarts != null) {
+            return intervalStarts.clone();
+        }
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        for (char symbol : getAlphabet()) {
+            boundaries.add((int) symbol);
+            if (symbol < Character.MAX_VALUE) {
+                boundaries.add(symbol + 1);
+            }
+        }
+        return toChars(boundaries);
+    }
+    
+    private static char[] toChars(Set<Integer> values) {
+        char[] chars = new char[values.size()];
+        int i = 0;
+        for (int value : values) {
+            chars[i++] = (char) value;
+        }
+        return chars;
+    }
+    
     public void addTransition(int fromState, char symbol, int toState) {
         if (!transitions.containsKey(fromState)) {
             transitions.put(fromState, new HashMap<>());
@@ -39,69 +120,471 @@ public class DFA {
         return stateCount;
     }
     
-    // Convert NFA to DFA using subset construction algorithm
+    // State count before minimize() produced this DFA (same as getStateCount() otherwise)
+    public int getUnminimizedStateCount() {
+        return unminimizedStateCount > 0 ? unminimizedStateCount : stateCount;
+    }
+    
+    // Convert NFA to DFA using subset construction algorithm. Works on the
+    // frozen NFA, where states are dense indices and a set of them is a
+    // long[] bitset. The epsilon closure of every move target is expanded
+    // into a bitset once up front; a DFA successor is then the OR of those
+    // bitsets, interned without allocating unless it is new.
     public static DFA fromNFA(NFA nfa) {
+        return fromNFA(nfa.freeze());
+    }
+    
+    public static DFA fromNFA(FrozenNFA nfa) {
+        int n = nfa.getStateCount();
+        int words = nfa.getWordCount();
+        
+        // The NFA's character intervals are the DFA's symbols, each keyed by
+        // its first character; every edge covers a contiguous run of them
+        char[] alphabet = nfa.getIntervalStarts();
+        int edgeCount = nfa.getEdgeStart(n);
+        int[] edgeFirst = new int[edgeCount];
+        int[] edgeLast = new int[edgeCount];
+        long[][] targetClosures = new long[n][];
+        for (int e = 0; e < edgeCount; e++) {
+            edgeFirst[e] = Arrays.binarySearch(alphabet, nfa.getEdgeLow(e));
+            edgeLast[e] = (nfa.getEdgeHigh(e) < Character.MAX_VALUE)
+                    ? Arrays.binarySearch(alphabet, (char) (nfa.getEdgeHigh(e) + 1)) - 1
+                    : alphabet.length - 1;
+            int target = nfa.getEdgeTarget(e);
+            if (targetClosures[target] == null) {
+                targetClosures[target] = new long[words];
+                nfa.addClosure(target, targetClosures[target]);
+            }
+        }
+        
+        int[] labels = new int[n];
+        long[] accepting = new long[words];
+        for (int s = 0; s < n; s++) {
+            labels[s] = nfa.getAcceptLabel(s);
+            if (nfa.isAccepting(s)) {
+                accepting[s >>> 6] |= 1L << s;
+            }
+        }
+        
         DFA dfa = new DFA();
-        Map<Set<State>, Integer> dfaStates = new HashMap<>();
-        Queue<Set<State>> unmarkedStates = new LinkedList<>();
+        dfa.intervalStarts = alphabet;
+        StateSetInterner dfaStates = new StateSetInterner(words);
         
-        // Get epsilon closure of NFA start state as first DFA state
-        Set<State> initialClosure = nfa.getEpsilonClosure(Collections.singleton(nfa.getStartState()));
-        dfaStates.put(initialClosure, 0);
+        // Epsilon closure of the NFA start state is the first DFA state
+        long[] initialClosure = new long[words];
+        nfa.initialStates(initialClosure);
+        dfaStates.add(initialClosure);
         dfa.setStartState(0);
-        unmarkedStates.add(initialClosure);
+        markAccepting(dfa, 0, initialClosure, accepting, labels);
+        
+        // Scratch successor sets per symbol, reused for every DFA state
+        long[][] successors = new long[alphabet.length][words];
+        boolean[] touched = new boolean[alphabet.length];
+        int[] touchedSymbols = new int[alphabet.length];
+        
+        // DFA states are numbered in discovery order, so the interner doubles as the worklist
+        for (int current = 0; current < dfaStates.size(); current++) {
+            long[] currentStates = dfaStates.get(current);
+            int touchedCount = 0;
+            
+            // Move on every symbol at once by walking the member states' edges
+            for (int w = 0; w < words; w++) {
+                long bits = currentStates[w];
+                while (bits != 0) {
+                    int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    for (int e = nfa.getEdgeStart(s); e < nfa.getEdgeEnd(s); e++) {
+                        long[] reach = targetClosures[nfa.getEdgeTarget(e)];
+                        for (int a = edgeFirst[e]; a <= edgeLast[e]; a++) {
+                            if (!touched[a]) {
+                                touched[a] = true;
+                                touchedSymbols[touchedCount++] = a;
+                            }
+                            or(successors[a], reach);
+                        }
+                    }
+                }
+            }
+            
+            // Visit symbols in alphabet order so state numbering is deterministic
+            Arrays.sort(touchedSymbols, 0, touchedCount);
+            for (int t = 0; t < touchedCount; t++) {
+                int a = touchedSymbols[t];
+                long[] nextStates = successors[a];
+                int next = dfaStates.find(nextStates);
+                if (next < 0) {
+                    next = dfaStates.add(nextStates.clone());
+                    markAccepting(dfa, next, nextStates, accepting, labels);
+                }
+                dfa.addTransition(current, alphabet[a], next);
+                Arrays.fill(nextStates, 0L);
+                touched[a] = false;
+            }
+        }
         
-        // Check if the initial state is accepting
-        for (State state : initialClosure) {
-            if (state.isAccepting()) {
-                dfa.addAcceptState(0);
-                break;
+        dfa.stateCount = dfaStates.size();
+        return dfa;
+    }
+    
+    private static void or(long[] target, long[] bits) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= bits[w];
+        }
+    }
+    
+    // Mark a DFA state accepting if any of its NFA states accepts, and carry
+    // over the highest-priority token label found among them
+    private static void markAccepting(DFA dfa, int dfaState, long[] nfaStates, long[] accepting, int[] labels) {
+        for (int w = 0; w < nfaStates.length; w++) {
+            if ((nfaStates[w] & accepting[w]) != 0) {
+                dfa.addAcceptState(dfaState);
+            }
+            long bits = nfaStates[w];
+            while (bits != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (labels[s] >= 0) {
+                    dfa.setAcceptLabel(dfaState, labels[s]);
+                }
             }
         }
+    }
+    
+    // Interns NFA state sets as DFA state ids: open addressing over the
+    // bitsets themselves, so lookups of an existing set do not allocate
+    private static class StateSetInterner {
+        private final int words;
+        private final List<long[]> sets = new ArrayList<>();
+        private int[] slots = new int[64];
         
-        // Get all alphabet symbols used in NFA
-        Set<Character> alphabet = new HashSet<>();
-        for (State state : nfa.getAllStates()) {
-            alphabet.addAll(state.getAllTransitions().keySet());
+        StateSetInterner(int words) {
+            this.words = words;
         }
         
-        // Process all unmarked DFA states
-        while (!unmarkedStates.isEmpty()) {
-            Set<State> currentStates = unmarkedStates.poll();
-            int currentDfaState = dfaStates.get(currentStates);
+        int size() {
+            return sets.size();
+        }
+        
+        long[] get(int id) {
+            return sets.get(id);
+        }
+        
+        int find(long[] set) {
+            int mask = slots.length - 1;
+            for (int slot = hash(set) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                long[] candidate = sets.get(slots[slot] - 1);
+                if (Arrays.equals(candidate, set)) {
+                    return slots[slot] - 1;
+                }
+            }
+            return -1;
+        }
+        
+        // Add a set known not to be present; the interner keeps the array
+        int add(long[] set) {
+            if ((sets.size() + 1) * 2 > slots.length) {
+                rehash(slots.length * 2);
+            }
+            sets.add(set);
+            insert(sets.size());
+            return sets.size() - 1;
+        }
+        
+        private void insert(int slotValue) {
+            int mask = slots.length - 1;
+            int slot = hash(sets.get(slotValue - 1)) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = slotValue;
+        }
+        
+        private void rehash(int capacity) {
+            slots = new int[capacity];
+            for (int id = 1; id <= sets.size(); id++) {
+                insert(id);
+            }
+        }
+        
+        private int hash(long[] set) {
+            long h = 0;
+            for (int w = 0; w < words; w++) {
+                h = (h ^ set[w]) * 0x9E3779B97F4A7C15L;
+            }
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+    
+    // Minimize using Hopcroft's partition refinement, O(n·k·log n) for n states
+    // and k symbols. States start out grouped by accept label, so states that
+    // accept different tokens are never merged. Missing transitions go to an
+    // implicit dead state; states equivalent to it are dropped from the result.
+    public DFA minimize() {
+        List<Character> alphabet = getAlphabet();
+        int symbolCount = alphabet.size();
+        int dead = stateCount;
+        int total = stateCount + 1;
+        
+        // Predecessor lists per (symbol, target) in CSR form
+        int[] predecessorStart = new int[symbolCount * total + 1];
+        int[] targets = new int[symbolCount * total];
+        for (int a = 0; a < symbolCount; a++) {
+            for (int state = 0; state < total; state++) {
+                int target = (state == dead) ? dead : getTransition(state, alphabet.get(a));
+                if (target < 0) {
+                    target = dead;
+                }
+                targets[a * total + state] = target;
+                predecessorStart[a * total + target + 1]++;
+            }
+        }
+        for (int i = 0; i < symbolCount * total; i++) {
+            predecessorStart[i + 1] += predecessorStart[i];
+        }
+        int[] predecessors = new int[symbolCount * total];
+        int[] fill = Arrays.copyOf(predecessorStart, symbolCount * total);
+        for (int a = 0; a < symbolCount; a++) {
+            for (int state = 0; state < total; state++) {
+                predecessors[fill[a * total + targets[a * total + state]]++] = state;
+            }
+        }
+        
+        // Initial partition: non-accepting states (with the dead state), then
+        // one block per distinct accept label
+        Map<Integer, List<Integer>> initialBlocks = new TreeMap<>();
+        for (int state = 0; state < total; state++) {
+            int key = (state != dead && acceptStates.contains(state)) ? getAcceptLabel(state) + 1 : -1;
+            initialBlocks.computeIfAbsent(key, k -> new ArrayList<>()).add(state);
+        }
+        Partition partition = new Partition(total, initialBlocks.values());
+        
+        // Worklist of (block, symbol) splitters
+        Deque<int[]> worklist = new ArrayDeque<>();
+        for (int block = 0; block < partition.blockCount; block++) {
+            for (int a = 0; a < symbolCount; a++) {
+                worklist.add(new int[] {block, a});
+            }
+        }
+        
+        int[] splitter = new int[total];
+        while (!worklist.isEmpty()) {
+            int[] item = worklist.poll();
+            int block = item[0];
+            int a = item[1];
+            
+            // Copy the splitter first: marking permutes elements inside blocks
+            int size = partition.copyBlock(block, splitter);
+            for (int i = 0; i < size; i++) {
+                int index = a * total + splitter[i];
+                for (int p = predecessorStart[index]; p < predecessorStart[index + 1]; p++) {
+                    partition.mark(predecessors[p]);
+                }
+            }
             
-            // For each symbol, compute the next DFA state
-            for (char symbol : alphabet) {
-                // Move on symbol, then get epsilon closure
-                Set<State> nextStates = nfa.getEpsilonClosure(nfa.move(currentStates, symbol));
-                
-                // Skip if no transition
-                if (nextStates.isEmpty()) {
+            // Each split creates a block no larger than what remains of the
+            // old one, and Hopcroft only needs to enqueue that smaller half
+            int firstNew = partition.blockCount;
+            partition.split();
+            for (int newBlock = firstNew; newBlock < partition.blockCount; newBlock++) {
+                for (int b = 0; b < symbolCount; b++) {
+                    worklist.add(new int[] {newBlock, b});
+                }
+            }
+        }
+        
+        return partition.quotient(this, alphabet, dead);
+    }
+    
+    // Symbols used by any transition, in ascending order
+    private List<Character> getAlphabet() {
+        Set<Character> symbols = new TreeSet<>();
+        for (Map<Character, Integer> stateTransitions : transitions.values()) {
+            symbols.addAll(stateTransitions.keySet());
+        }
+        return new ArrayList<>(symbols);
+    }
+    
+    // Refinable partition of the states 0..n-1. Elements of each block sit
+    // contiguously in elements[]; marked elements are moved to the front of
+    // their block so that a split is just moving a boundary.
+    private static class Partition {
+        private final int[] elements;
+        private final int[] location;
+        private final int[] blockOf;
+        private final int[] first;
+        private final int[] end;
+        private final int[] marked;
+        private final int[] touched;
+        private int touchedCount;
+        private int blockCount;
+        
+        Partition(int size, Collection<List<Integer>> blocks) {
+            elements = new int[size];
+            location = new int[size];
+            blockOf = new int[size];
+            first = new int[size];
+            end = new int[size];
+            marked = new int[size];
+            touched = new int[size];
+            
+            int position = 0;
+            for (List<Integer> block : blocks) {
+                first[blockCount] = position;
+                marked[blockCount] = position;
+                for (int state : block) {
+                    elements[position] = state;
+                    location[state] = position;
+                    blockOf[state] = blockCount;
+                    position++;
+                }
+                end[blockCount] = position;
+                blockCount++;
+            }
+        }
+        
+        int copyBlock(int block, int[] target) {
+            int size = end[block] - first[block];
+            System.arraycopy(elements, first[block], target, 0, size);
+            return size;
+        }
+        
+        void mark(int state) {
+            int block = blockOf[state];
+            int i = location[state];
+            int j = marked[block];
+            if (i >= j) {
+                elements[i] = elements[j];
+                location[elements[i]] = i;
+                elements[j] = state;
+                location[state] = j;
+                if (j == first[block]) {
+                    touched[touchedCount++] = block;
+                }
+                marked[block] = j + 1;
+            }
+        }
+        
+        // Split every touched block into its marked and unmarked parts; the
+        // smaller part becomes the new block
+        void split() {
+            while (touchedCount > 0) {
+                int block = touched[--touchedCount];
+                int middle = marked[block];
+                if (middle == end[block]) {
+                    marked[block] = first[block];
                     continue;
                 }
-                
-                // Create new DFA state if not seen before
-                if (!dfaStates.containsKey(nextStates)) {
-                    int newStateId = dfaStates.size();
-                    dfaStates.put(nextStates, newStateId);
-                    unmarkedStates.add(nextStates);
-                    
-                    // Check if new state is accepting
-                    for (State state : nextStates) {
-                        if (state.isAccepting()) {
-                            dfa.addAcceptState(newStateId);
-                            break;
-                        }
+                int newBlock = blockCount++;
+                if (middle - first[block] <= end[block] - middle) {
+                    first[newBlock] = first[block];
+                    end[newBlock] = middle;
+                    first[block] = middle;
+                } else {
+                    first[newBlock] = middle;
+                    end[newBlock] = end[block];
+                    end[block] = middle;
+                }
+                marked[block] = first[block];
+                marked[newBlock] = first[newBlock];
+                for (int i = first[newBlock]; i < end[newBlock]; i++) {
+                    blockOf[elements[i]] = newBlock;
+                }
+            }
+        }
+        
+        // Build the minimized DFA, numbering blocks in breadth-first order from
+        // the start state and leaving out the dead block
+        DFA quotient(DFA original, List<Character> alphabet, int dead) {
+            int[] newId = new int[blockCount];
+            Arrays.fill(newId, -1);
+            int[] representative = new int[blockCount];
+            int count = 0;
+            
+            DFA result = new DFA();
+            Queue<Integer> queue = new LinkedList<>();
+            int startBlock = blockOf[original.startState];
+            if (startBlock != blockOf[dead]) {
+                newId[startBlock] = count++;
+                representative[startBlock] = original.startState;
+                queue.add(startBlock);
+            }
+            
+            while (!queue.isEmpty()) {
+                int block = queue.poll();
+                int state = representative[block];
+                for (char symbol : alphabet) {
+                    int target = original.getTransition(state, symbol);
+                    if (target < 0 || blockOf[target] == blockOf[dead]) {
+                        continue;
                     }
+                    int targetBlock = blockOf[target];
+                    if (newId[targetBlock] < 0) {
+                        newId[targetBlock] = count++;
+                        representative[targetBlock] = target;
+                        queue.add(targetBlock);
+                    }
+                    result.addTransition(newId[block], symbol, newId[targetBlock]);
+                }
+                if (original.isAccepting(state)) {
+                    result.addAcceptState(newId[block]);
+                    if (original.getAcceptLabel(state) >= 0) {
+                        result.setAcceptLabel(newId[block], original.getAcceptLabel(state));
+                    }
+                }
+            }
+            
+            result.setStartState(0);
+            result.stateCount = count;
+            result.intervalStarts = original.intervalStarts;
+            result.unminimizedStateCount = original.getUnminimizedStateCount();
+            return result;
+        }
+    }
+    
+    // Convert to the array-backed form, compressing the alphabet into
+    // character classes that no state can tell apart
+    public CompactDFA compact() {
+        // Intervals with identical target columns share a class; intervals
+        // without any transition stay in class 0
+        char[] starts = getIntervalStarts();
+        int[] intervalClasses = new int[starts.length];
+        Map<List<Integer>, Integer> classIds = new HashMap<>();
+        for (int interval = 0; interval < starts.length; interval++) {
+            List<Integer> column = new ArrayList<>(stateCount);
+            boolean used = false;
+            for (int state = 0; state < stateCount; state++) {
+                int target = getTransition(state, starts[interval]);
+                column.add(target);
+                used |= target >= 0;
+            }
+            if (used) {
+                Integer classId = classIds.get(column);
+                if (classId == null) {
+                    classId = classIds.size() + 1;
+                    classIds.put(column, classId);
                 }
-                
-                // Add transition in DFA
-                dfa.addTransition(currentDfaState, symbol, dfaStates.get(nextStates));
+                intervalClasses[interval] = classId;
             }
         }
         
-        dfa.stateCount = dfaStates.size();
-        return dfa;
+        int classCount = classIds.size() + 1;
+        int[] table = new int[stateCount * classCount];
+        Arrays.fill(table, -1);
+        for (Map.Entry<List<Integer>, Integer> entry : classIds.entrySet()) {
+            List<Integer> column = entry.getKey();
+            for (int state = 0; state < stateCount; state++) {
+                table[state * classCount + entry.getValue()] = column.get(state);
+            }
+        }
+        
+        BitSet accepting = new BitSet(stateCount);
+        int[] labels = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            accepting.set(state, acceptStates.contains(state));
+            labels[state] = getAcceptLabel(state);
+        }
+        
+        return new CompactDFA(startState, stateCount, classCount, starts, intervalClasses, table, accepting, labels);
     }
     
     // Method to display transition table
@@ -120,7 +603,7 @@ public class DFA {
         // Print header
         System.out.print("State\t");
         for (char symbol : sortedSymbols) {
-            System.out.print("| " + symbol + "\t");
+            System.out.print("| " + symbolLabel(symbol) + "\t");
         }
         System.out.println("| Accepting");
         System.out.println("-".repeat(70));
@@ -150,4 +633,23 @@ public class DFA {
                 .orElse("None"));
         System.out.println("Total States: " + stateCount);
     }
+    
+    // Column label for a transition key: the character, or its interval as "a-z"
+    private String symbolLabel(char key) {
+        if (intervalStarts == null) {
+            return String.valueOf(key);
+        }
+        int interval = Arrays.binarySearch(intervalStarts, key);
+        char last = (interval + 1 < intervalStarts.length)
+                ? (char) (intervalStarts[interval + 1] - 1)
+                : Character.MAX_VALUE;
+        return (last == key) ? String.valueOf(key) : key + "-" + last;
+    }
+    
+    // Report how much minimize() reduced the automaton
+    public void displayMinimizationSummary() {
+        int before = getUnminimizedStateCount();
+        System.out.printf("DFA states: %d before minimization, %d after (%.1f%% fewer)%n",
+                before, stateCount, before == 0 ? 0.0 : 100.0 * (before - stateCount) / before);
+    }
 }
\ No newline at end of file
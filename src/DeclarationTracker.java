@@ -0,0 +1,128 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Builds the symbol table while tokens go by: a data type keyword followed
+// by an identifier declares it, any other identifier must already be
+// declared, and braces open and close scopes. Shared by the list-based
+// LexicalAnalyser and the streaming TokenStream. When exited scopes are
+// archived, where each scope starts and ends is recorded in a ScopeTree,
+// and what each identifier reference resolved to in a ReferenceIndex.
+class DeclarationTracker {
+    // Data type keywords mapping to their actual type names; unmodifiable
+    private static final Map<String, String> dataTypeKeywords;
+
+    static {
+        Map<String, String> map = new HashMap<>();
+        map.put("num", "int");
+        map.put("deci", "float");
+        map.put("letter", "char");
+        map.put("cond", "boolean");
+        dataTypeKeywords = Collections.unmodifiableMap(map);
+    }
+
+    private final SymbolTable symbolTable;
+    private final ScopeTree scopeTree; // or null
+    private final ReferenceIndex references; // null without a scope tree
+    private String currentDataType = null; // Track current data type for variable declarations
+
+    DeclarationTracker() {
+        this(true);
+    }
+
+    // Without archiving, the table only holds the symbols of open scopes
+    // and no scope tree or references are kept
+    DeclarationTracker(boolean archiveExitedScopes) {
+        this(new SymbolTable(archiveExitedScopes), archiveExitedScopes ? new ScopeTree() : null);
+    }
+
+    DeclarationTracker(SymbolTable symbolTable) {
+        this(symbolTable, null);
+    }
+
+    private DeclarationTracker(SymbolTable symbolTable, ScopeTree scopeTree) {
+        this.symbolTable = symbolTable;
+        this.scopeTree = scopeTree;
+        this.references = (scopeTree != null) ? new ReferenceIndex(scopeTree) : null;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // Scopes and declarations by offset, or null if not recorded
+    public ScopeTree getScopeTree() {
+        return scopeTree;
+    }
+
+    // Resolved identifier references, or null if not recorded
+    public ReferenceIndex getReferenceIndex() {
+        return references;
+    }
+
+    // Update the symbol table for a token. Returns the message of the error
+    // the token causes (redeclared or undeclared identifier), or null.
+    public String accept(Token token) {
+        if (token.getType() == TokenType.NUM ||
+            token.getType() == TokenType.DECI ||
+            token.getType() == TokenType.LETTER ||
+            token.getType() == TokenType.COND) {
+            // This is a data type declaration, store it for upcoming identifiers
+            currentDataType = dataTypeKeywords.get(token.getLexeme());
+        }
+        else if (token.getType() == TokenType.IDENTIFIER) {
+            // Handle identifiers
+            if (currentDataType != null) {
+                // This identifier follows a data type declaration, so it's a variable declaration
+                boolean isGlobal = symbolTable.getCurrentScope() == 0;
+                boolean inserted = symbolTable.insert(
+                    token.getLexeme(),           // name
+                    SymbolType.VARIABLE,         // type
+                    currentDataType,             // dataType
+                    false,                       // isConstant (assume non-constant by default)
+                    isGlobal,                    // isGlobal
+                    null,                        // value (initially null)
+                    token.getLine(),             // line
+                    token.getColumn()            // column
+                );
+
+                if (!inserted) {
+                    return "Redeclaration of identifier '" + token.getLexeme() + "' in the same scope";
+                }
+                if (scopeTree != null) {
+                    scopeTree.declare(symbolTable.lookup(token.getLexeme()), token.getStart());
+                }
+            } else {
+                // This is a reference to an existing identifier
+                Symbol symbol = symbolTable.lookup(token.getLexeme());
+                if (symbol == null) {
+                    return "Undeclared identifier: " + token.getLexeme();
+                }
+                if (references != null) {
+                    references.record(symbol, token.getStart());
+                }
+            }
+        }
+        else if (token.getType() == TokenType.LBRACE) {
+            // Opening brace, enter a new scope
+            symbolTable.enterScope();
+            if (scopeTree != null) {
+                scopeTree.open(token.getStart());
+            }
+            currentDataType = null; // Reset current data type
+        }
+        else if (token.getType() == TokenType.RBRACE) {
+            // Closing brace, exit the current scope
+            symbolTable.exitScope();
+            if (scopeTree != null) {
+                scopeTree.close(token.getEnd());
+            }
+            currentDataType = null; // Reset current data type
+        }
+        else if (token.getType() == TokenType.SEMICOLON) {
+            // End of statement, reset current data type
+            currentDataType = null;
+        }
+        return null;
+    }
+}
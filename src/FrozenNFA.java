@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Read-only NFA produced by NFA.freeze() once construction is finished.
+// States are numbered 0..n-1 in id order and all edges live in CSR
+// (compressed sparse row) arrays: the labelled edges of state s are
+// edgeLows/edgeHighs/edgeTargets[edgeStart[s] .. edgeStart[s + 1]), each one a
+// character range (single characters are ranges of one), and likewise
+// for epsilon edges and for the precomputed epsilon closure of each state.
+// State sets are long[] bitsets of getWordCount() words supplied by the
+// caller, so simulation does not allocate.
+public class FrozenNFA {
+    private final int stateCount;
+    private final int wordCount;
+    private final int startState;
+    private final int[] stateIds;
+    private final boolean[] accepting;
+    private final int[] acceptLabels;
+
+    private final int[] edgeStart;
+    private final char[] edgeLows;
+    private final char[] edgeHighs;
+    private final int[] edgeTargets;
+
+    private final int[] epsilonStart;
+    private final int[] epsilonTargets;
+
+    private final int[] closureStart;
+    private final int[] closureMembers;
+
+    FrozenNFA(NFA nfa) {
+        List<State> states = new ArrayList<>(nfa.getAllStates());
+        states.sort(Comparator.comparingInt(State::getId));
+        Map<State, Integer> index = new HashMap<>(states.size() * 2);
+        for (State state : states) {
+            index.put(state, index.size());
+        }
+
+        this.stateCount = states.size();
+        this.wordCount = (stateCount + 63) >>> 6;
+        this.startState = index.get(nfa.getStartState());
+        this.stateIds = new int[stateCount];
+        this.accepting = new boolean[stateCount];
+        this.acceptLabels = new int[stateCount];
+
+        int edgeCount = 0;
+        int epsilonCount = 0;
+        int closureCount = 0;
+        for (State state : states) {
+            for (Set<State> targets : state.getAllTransitions().values()) {
+                edgeCount += targets.size();
+            }
+            edgeCount += state.getRangeTransitions().size();
+            epsilonCount += state.getEpsilonTransitions().size();
+            closureCount += nfa.getEpsilonClosure(state).size();
+        }
+
+        this.edgeStart = new int[stateCount + 1];
+        this.edgeLows = new char[edgeCount];
+        this.edgeHighs = new char[edgeCount];
+        this.edgeTargets = new int[edgeCount];
+        this.epsilonStart = new int[stateCount + 1];
+        this.epsilonTargets = new int[epsilonCount];
+        this.closureStart = new int[stateCount + 1];
+        this.closureMembers = new int[closureCount];
+
+        int edge = 0;
+        int epsilon = 0;
+        int member = 0;
+        for (int s = 0; s < stateCount; s++) {
+            State state = states.get(s);
+            stateIds[s] = state.getId();
+            accepting[s] = state.isAccepting();
+            acceptLabels[s] = state.getAcceptLabel();
+
+            edgeStart[s] = edge;
+            for (Map.Entry<Character, Set<State>> entry : state.getAllTransitions().entrySet()) {
+                for (State target : entry.getValue()) {
+                    edgeLows[edge] = entry.getKey();
+                    edgeHighs[edge] = entry.getKey();
+                    edgeTargets[edge++] = index.get(target);
+                }
+            }
+            for (State.RangeTransition range : state.getRangeTransitions()) {
+                edgeLows[edge] = range.getLow();
+                edgeHighs[edge] = range.getHigh();
+                edgeTargets[edge++] = index.get(range.getTarget());
+            }
+
+            epsilonStart[s] = epsilon;
+            for (State target : state.getEpsilonTransitions()) {
+                epsilonTargets[epsilon++] = index.get(target);
+            }
+
+            closureStart[s] = member;
+            for (State reachable : nfa.getEpsilonClosure(state)) {
+                closureMembers[member++] = index.get(reachable);
+            }
+            Arrays.sort(closureMembers, closureStart[s], member);
+        }
+        edgeStart[stateCount] = edge;
+        epsilonStart[stateCount] = epsilon;
+        closureStart[stateCount] = member;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    // Length of the long[] bitsets used for state sets
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    // Id of the original State behind a dense index
+    public int getStateId(int state) {
+        return stateIds[state];
+    }
+
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    public int getAcceptLabel(int state) {
+        return acceptLabels[state];
+    }
+
+    public int getEdgeStart(int state) {
+        return edgeStart[state];
+    }
+
+    public int getEdgeEnd(int state) {
+        return edgeStart[state + 1];
+    }
+
+    // Edge label: the characters in [getEdgeLow, getEdgeHigh]
+    public char getEdgeLow(int edge) {
+        return edgeLows[edge];
+    }
+
+    public char getEdgeHigh(int edge) {
+        return edgeHighs[edge];
+    }
+
+    public int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public int getEpsilonStart(int state) {
+        return epsilonStart[state];
+    }
+
+    public int getEpsilonEnd(int state) {
+        return epsilonStart[state + 1];
+    }
+
+    public int getEpsilonTarget(int edge) {
+        return epsilonTargets[edge];
+    }
+
+    // Split the character space at every edge boundary, so that every edge
+    // covers a contiguous run of the returned intervals. Characters within one
+    // interval are indistinguishable to this NFA.
+    public char[] getIntervalStarts() {
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        for (int e = 0; e < edgeLows.length; e++) {
+            boundaries.add((int) edgeLows[e]);
+            if (edgeHighs[e] < Character.MAX_VALUE) {
+                boundaries.add(edgeHighs[e] + 1);
+            }
+        }
+        char[] starts = new char[boundaries.size()];
+        int i = 0;
+        for (int boundary : boundaries) {
+            starts[i++] = (char) boundary;
+        }
+        return starts;
+    }
+
+    // Add the epsilon closure of a state to a bitset
+    public void addClosure(int state, long[] set) {
+        for (int i = closureStart[state]; i < closureStart[state + 1]; i++) {
+            int m = closureMembers[i];
+            set[m >>> 6] |= 1L << m;
+        }
+    }
+
+    // Fill a bitset with the closure of the start state
+    public void initialStates(long[] set) {
+        Arrays.fill(set, 0L);
+        addClosure(startState, set);
+    }
+
+    // Move on a symbol and take the closure: into = closure(move(from, symbol)).
+    // Returns false if the result is empty.
+    public boolean step(long[] from, char symbol, long[] into) {
+        Arrays.fill(into, 0L);
+        boolean any = false;
+        for (int w = 0; w < wordCount; w++) {
+            long bits = from[w];
+            while (bits != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                    if (edgeLows[e] <= symbol && symbol <= edgeHighs[e]) {
+                        addClosure(edgeTargets[e], into);
+                        any = true;
+                    }
+                }
+            }
+        }
+        return any;
+    }
+
+    public boolean isAccepting(long[] set) {
+        for (int w = 0; w < wordCount; w++) {
+            long bits = set[w];
+            while (bits != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (accepting[s]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Highest-priority (lowest) accept label in a set, or -1
+    public int getAcceptLabel(long[] set) {
+        int label = -1;
+        for (int w = 0; w < wordCount; w++) {
+            long bits = set[w];
+            while (bits != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (acceptLabels[s] >= 0 && (label < 0 || acceptLabels[s] < label)) {
+                    label = acceptLabels[s];
+                }
+            }
+        }
+        return label;
+    }
+
+    // Whether the whole input is accepted, using the caller's two scratch bitsets
+    public boolean matches(CharSequence input, long[] current, long[] next) {
+        initialStates(current);
+        for (int i = 0; i < input.length(); i++) {
+            if (!step(current, input.charAt(i), next)) {
+                return false;
+            }
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+        return isAccepting(current);
+    }
+
+    public boolean matches(CharSequence input) {
+        return matches(input, new long[wordCount], new long[wordCount]);
+    }
+}
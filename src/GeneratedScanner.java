@@ -0,0 +1,994 @@
+// Generated by ScannerGenerator from LexerRules; do not edit.
+// Regenerate with: java ScannerGenerator
+//
+// Minimized DFA of the token rules, 70 states, unrolled into
+// switch statements: one method per state maps a character to the next state.
+final class GeneratedScanner {
+    // ScannerTableFile.fingerprint() of the rules this scanner was generated from
+    static final long FINGERPRINT = 0xeb8692bda8b8c1a1L;
+
+    private GeneratedScanner() {
+    }
+
+    // Longest match starting at start, packed as (rule << 32) | end, or -1
+    // if no prefix of input[start, end) matches a rule
+    static long match(char[] input, int start, int end) {
+        int state = 0;
+        long accepted = -1;
+        for (int i = start; i < end; i++) {
+            char c = input[i];
+            switch (state) {
+                case 0: state = state0(c); break;
+                case 1: state = state1(c); break;
+                case 2: state = state2(c); break;
+                case 3: state = state3(c); break;
+                case 4: state = state4(c); break;
+                case 5: state = state5(c); break;
+                case 6: state = state6(c); break;
+                case 7: state = state7(c); break;
+                case 8: state = state8(c); break;
+                case 9: state = state9(c); break;
+                case 10: state = state10(c); break;
+                case 11: state = state11(c); break;
+                case 12: state = state12(c); break;
+                case 13: state = state13(c); break;
+                case 14: state = state14(c); break;
+                case 15: state = state15(c); break;
+                case 16: state = state16(c); break;
+                case 17: state = state17(c); break;
+                case 18: state = state18(c); break;
+                case 19: state = state19(c); break;
+                case 20: state = state20(c); break;
+                case 21: state = state21(c); break;
+                case 22: state = state22(c); break;
+                case 23: state = state23(c); break;
+                case 24: state = state24(c); break;
+                case 25: state = state25(c); break;
+                case 26: state = state26(c); break;
+                case 27: state = state27(c); break;
+                case 28: state = state28(c); break;
+                case 29: state = state29(c); break;
+                case 30: state = state30(c); break;
+                case 31: state = state31(c); break;
+                case 32: state = state32(c); break;
+                case 33: state = state33(c); break;
+                case 34: state = state34(c); break;
+                case 35: state = state35(c); break;
+                case 36: state = state36(c); break;
+                case 37: state = state37(c); break;
+                case 38: state = state38(c); break;
+                case 39: state = state39(c); break;
+                case 40: state = state40(c); break;
+                case 41: state = state41(c); break;
+                case 42: state = state42(c); break;
+                case 43: state = state43(c); break;
+                case 44: state = state44(c); break;
+                case 45: state = state45(c); break;
+                case 46: state = state46(c); break;
+                case 47: state = state47(c); break;
+                case 48: state = state48(c); break;
+                case 49: state = state49(c); break;
+                case 50: state = state50(c); break;
+                case 51: state = state51(c); break;
+                case 52: state = state52(c); break;
+                case 53: state = state53(c); break;
+                case 54: state = state54(c); break;
+                case 55: state = state55(c); break;
+                case 56: state = state56(c); break;
+                case 57: state = state57(c); break;
+                case 58: state = state58(c); break;
+                case 59: state = state59(c); break;
+                case 60: state = state60(c); break;
+                case 61: state = state61(c); break;
+                case 62: state = state62(c); break;
+                case 63: state = state63(c); break;
+                case 64: state = state64(c); break;
+                case 65: state = state65(c); break;
+                case 66: state = state66(c); break;
+                case 67: state = state67(c); break;
+                case 68: state = state68(c); break;
+                case 69: state = state69(c); break;
+                default: return accepted;
+            }
+            if (state < 0) {
+                return accepted;
+            }
+            int rule = acceptRule(state);
+            if (rule >= 0) {
+                accepted = accept(rule, i + 1);
+            }
+        }
+        return accepted;
+    }
+
+    private static long accept(int rule, int end) {
+        return ((long) rule << 32) | end;
+    }
+
+    // Token rule accepted in a state, or -1
+    private static int acceptRule(int state) {
+        switch (state) {
+            case 1: return 12;
+            case 2: return 14;
+            case 3: return 37;
+            case 4: return 36;
+            case 5: return 16;
+            case 6: return 17;
+            case 7: return 18;
+            case 8: return 19;
+            case 9: return 20;
+            case 10: return 21;
+            case 11: return 22;
+            case 12: return 9;
+            case 13: return 23;
+            case 14: return 24;
+            case 15: return 26;
+            case 16: return 28;
+            case 17: return 30;
+            case 18: return 8;
+            case 19: return 8;
+            case 20: return 8;
+            case 21: return 8;
+            case 22: return 8;
+            case 23: return 8;
+            case 24: return 8;
+            case 25: return 8;
+            case 26: return 8;
+            case 27: return 31;
+            case 28: return 38;
+            case 29: return 33;
+            case 30: return 13;
+            case 31: return 15;
+            case 32: return 36;
+            case 33: return 35;
+            case 34: return 36;
+            case 35: return 36;
+            case 36: return 34;
+            case 37: return 25;
+            case 38: return 27;
+            case 39: return 29;
+            case 40: return 8;
+            case 41: return 8;
+            case 42: return 8;
+            case 43: return 8;
+            case 44: return 8;
+            case 45: return 8;
+            case 46: return 8;
+            case 47: return 8;
+            case 48: return 32;
+            case 49: return 11;
+            case 50: return 10;
+            case 51: return 8;
+            case 52: return 8;
+            case 53: return 8;
+            case 54: return 8;
+            case 55: return 4;
+            case 56: return 8;
+            case 57: return 8;
+            case 58: return 8;
+            case 59: return 0;
+            case 60: return 1;
+            case 61: return 8;
+            case 62: return 8;
+            case 63: return 8;
+            case 64: return 6;
+            case 65: return 7;
+            case 66: return 2;
+            case 67: return 8;
+            case 68: return 5;
+            case 69: return 3;
+            default: return -1;
+        }
+    }
+
+    private static int state0(char c) {
+        switch (c) {
+            case '!':
+                return 1;
+            case '%':
+                return 2;
+            case '&':
+                return 3;
+            case '\'':
+                return 4;
+            case '(':
+                return 5;
+            case ')':
+                return 6;
+            case '*':
+                return 7;
+            case '+':
+                return 8;
+            case ',':
+                return 9;
+            case '-':
+                return 10;
+            case '/':
+                return 11;
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
+            case '8': case '9':
+                return 12;
+            case ';':
+                return 13;
+            case '<':
+                return 14;
+            case '=':
+                return 15;
+            case '>':
+                return 16;
+            case '^':
+                return 17;
+            case 'a': case 'b': case 'e': case 'g': case 'h': case 'i': case 'j': case 'k':
+            case 'm': case 'o': case 'q': case 's': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            case 'c':
+                return 19;
+            case 'd':
+                return 20;
+            case 'f':
+                return 21;
+            case 'l':
+                return 22;
+            case 'n':
+                return 23;
+            case 'p':
+                return 24;
+            case 'r':
+                return 25;
+            case 't':
+                return 26;
+            case '{':
+                return 27;
+            case '|':
+                return 28;
+            case '}':
+                return 29;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state1(char c) {
+        switch (c) {
+            case '=':
+                return 30;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state2(char c) {
+        return -1;
+    }
+
+    private static int state3(char c) {
+        switch (c) {
+            case '&':
+                return 31;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state4(char c) {
+        switch (c) {
+            case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+            case 8: case 9: case 10: case 11: case 12: case 13: case 14: case 15:
+            case 16: case 17: case 18: case 19: case 20: case 21: case 22: case 23:
+            case 24: case 25: case 26: case 27: case 28: case 29: case 30: case 31:
+            case ' ': case '!': case '"': case '#': case '$': case '%': case '&': case '(':
+            case ')': case '*': case '+': case ',': case '-': case '.': case '/': case '0':
+            case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8':
+            case '9': case ':': case ';': case '<': case '=': case '>': case '?': case '@':
+            case 'A': case 'B': case 'C': case 'D': case 'E': case 'F': case 'G': case 'H':
+            case 'I': case 'J': case 'K': case 'L': case 'M': case 'N': case 'O': case 'P':
+            case 'Q': case 'R': case 'S': case 'T': case 'U': case 'V': case 'W': case 'X':
+            case 'Y': case 'Z': case '[': case ']': case '^': case '_': case '`': case 'a':
+            case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z': case '{': case '|': case '}': case '~': case 127:
+                return 32;
+            case '\'':
+                return 33;
+            case '\\':
+                return 34;
+            default:
+                if (c >= 128 && c <= 55295) {
+                    return 32;
+                }
+                if (c >= 55296 && c <= 56319) {
+                    return 35;
+                }
+                if (c >= 56320 && c <= 65535) {
+                    return 32;
+                }
+                return -1;
+        }
+    }
+
+    private static int state5(char c) {
+        return -1;
+    }
+
+    private static int state6(char c) {
+        return -1;
+    }
+
+    private static int state7(char c) {
+        return -1;
+    }
+
+    private static int state8(char c) {
+        return -1;
+    }
+
+    private static int state9(char c) {
+        return -1;
+    }
+
+    private static int state10(char c) {
+        return -1;
+    }
+
+    private static int state11(char c) {
+        return -1;
+    }
+
+    private static int state12(char c) {
+        switch (c) {
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
+            case '8': case '9':
+                return 12;
+            case '.':
+                return 36;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state13(char c) {
+        return -1;
+    }
+
+    private static int state14(char c) {
+        switch (c) {
+            case '=':
+                return 37;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state15(char c) {
+        switch (c) {
+            case '=':
+                return 38;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state16(char c) {
+        switch (c) {
+            case '=':
+                return 39;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state17(char c) {
+        return -1;
+    }
+
+    private static int state18(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state19(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'o':
+                return 40;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state20(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'e':
+                return 41;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state21(char c) {
+        switch (c) {
+            case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'a':
+                return 42;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state22(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'e':
+                return 43;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state23(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'u':
+                return 44;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state24(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'r':
+                return 45;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state25(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'e':
+                return 46;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state26(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'r':
+                return 47;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state27(char c) {
+        return -1;
+    }
+
+    private static int state28(char c) {
+        switch (c) {
+            case '|':
+                return 48;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state29(char c) {
+        return -1;
+    }
+
+    private static int state30(char c) {
+        return -1;
+    }
+
+    private static int state31(char c) {
+        return -1;
+    }
+
+    private static int state32(char c) {
+        switch (c) {
+            case '\'':
+                return 49;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state33(char c) {
+        return -1;
+    }
+
+    private static int state34(char c) {
+        switch (c) {
+            case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+            case 8: case 9: case 10: case 11: case 12: case 13: case 14: case 15:
+            case 16: case 17: case 18: case 19: case 20: case 21: case 22: case 23:
+            case 24: case 25: case 26: case 27: case 28: case 29: case 30: case 31:
+            case ' ': case '!': case '"': case '#': case '$': case '%': case '&': case '\'':
+            case '(': case ')': case '*': case '+': case ',': case '-': case '.': case '/':
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
+            case '8': case '9': case ':': case ';': case '<': case '=': case '>': case '?':
+            case '@': case 'A': case 'B': case 'C': case 'D': case 'E': case 'F': case 'G':
+            case 'H': case 'I': case 'J': case 'K': case 'L': case 'M': case 'N': case 'O':
+            case 'P': case 'Q': case 'R': case 'S': case 'T': case 'U': case 'V': case 'W':
+            case 'X': case 'Y': case 'Z': case '[': case '\\': case ']': case '^': case '_':
+            case '`': case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g':
+            case 'h': case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o':
+            case 'p': case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w':
+            case 'x': case 'y': case 'z': case '{': case '|': case '}': case '~': case 127:
+                return 32;
+            default:
+                if (c >= 128 && c <= 55295) {
+                    return 32;
+                }
+                if (c >= 55296 && c <= 56319) {
+                    return 35;
+                }
+                if (c >= 56320 && c <= 65535) {
+                    return 32;
+                }
+                return -1;
+        }
+    }
+
+    private static int state35(char c) {
+        switch (c) {
+            case '\'':
+                return 49;
+            default:
+                if (c >= 56320 && c <= 57343) {
+                    return 32;
+                }
+                return -1;
+        }
+    }
+
+    private static int state36(char c) {
+        switch (c) {
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
+            case '8': case '9':
+                return 50;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state37(char c) {
+        return -1;
+    }
+
+    private static int state38(char c) {
+        return -1;
+    }
+
+    private static int state39(char c) {
+        return -1;
+    }
+
+    private static int state40(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'n':
+                return 51;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state41(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'd': case 'e': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'c':
+                return 52;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state42(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'l':
+                return 53;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state43(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 't':
+                return 54;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state44(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'm':
+                return 55;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state45(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'i':
+                return 56;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state46(char c) {
+        switch (c) {
+            case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'a':
+                return 57;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state47(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'u':
+                return 58;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state48(char c) {
+        return -1;
+    }
+
+    private static int state49(char c) {
+        return -1;
+    }
+
+    private static int state50(char c) {
+        switch (c) {
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
+            case '8': case '9':
+                return 50;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state51(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'e': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'd':
+                return 59;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state52(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'i':
+                return 60;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state53(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 's':
+                return 61;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state54(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 't':
+                return 62;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state55(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state56(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'n':
+                return 63;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state57(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'e': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'd':
+                return 64;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state58(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'e':
+                return 65;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state59(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state60(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state61(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'e':
+                return 66;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state62(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'f': case 'g': case 'h': case 'i':
+            case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p': case 'q':
+            case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'e':
+                return 67;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state63(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 't':
+                return 68;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state64(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state65(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state66(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state67(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 's': case 't': case 'u': case 'v': case 'w': case 'x': case 'y':
+            case 'z':
+                return 18;
+            case 'r':
+                return 69;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state68(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+
+    private static int state69(char c) {
+        switch (c) {
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
+            case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
+            case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
+            case 'y': case 'z':
+                return 18;
+            default:
+                return -1;
+        }
+    }
+}
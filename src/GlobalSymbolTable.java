@@ -0,0 +1,98 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The global scope shared by the files of a multi-file run. Workers lexing
+// different files first declare their global symbols here concurrently;
+// once every file is declared the table is frozen, and the workers resolve
+// their identifiers against it. Each worker keeps its nested scopes in a
+// thread-confined SymbolTable stacked on top (see SymbolTable(GlobalSymbolTable, int)).
+//
+// A name belongs to its first declaration in file order, then source order,
+// whichever worker gets there first: declare inserts with putIfAbsent and
+// replaces a later owner by compare-and-set, so the owner, and with it
+// which declarations are redeclarations, is the same on every run. After
+// the freeze reads are plain lock-free map lookups.
+public class GlobalSymbolTable {
+    // A global symbol and the index of the file declaring it
+    private static final class Declaration {
+        final Symbol symbol;
+        final int file;
+
+        Declaration(Symbol symbol, int file) {
+            this.symbol = symbol;
+            this.file = file;
+        }
+
+        boolean precedes(Declaration other) {
+            if (file != other.file) {
+                return file < other.file;
+            }
+            if (symbol.getLine() != other.symbol.getLine()) {
+                return symbol.getLine() < other.symbol.getLine();
+            }
+            return symbol.getColumn() < other.symbol.getColumn();
+        }
+    }
+
+    private final ConcurrentHashMap<String, Declaration> declarations = new ConcurrentHashMap<>();
+    private volatile boolean frozen;
+
+    // Record a global declared in file. Safe to call from any thread until
+    // freeze; the owner of each name is only final after it.
+    void declare(Symbol symbol, int file) {
+        if (frozen) {
+            throw new IllegalStateException("Global symbols are frozen");
+        }
+        Declaration mine = new Declaration(symbol, file);
+        Declaration current = declarations.putIfAbsent(symbol.getName(), mine);
+        while (current != null && mine.precedes(current)) {
+            if (declarations.replace(symbol.getName(), current, mine)) {
+                return;
+            }
+            current = declarations.get(symbol.getName()); // entries are never removed
+        }
+    }
+
+    // End the declaration phase; the table is read-only from here on
+    void freeze() {
+        frozen = true;
+    }
+
+    boolean isFrozen() {
+        return frozen;
+    }
+
+    // The global owning a name, unless it is declared in fromFile (where it
+    // is only visible after its declaration), or null
+    Symbol lookup(String name, int fromFile) {
+        Declaration owner = declarations.get(name);
+        return (owner != null && owner.file != fromFile) ? owner.symbol : null;
+    }
+
+    // Whether the global declared in file at line and column owns its name
+    boolean owns(String name, int file, int line, int column) {
+        Declaration owner = declarations.get(name);
+        return owner != null && owner.file == file
+                && owner.symbol.getLine() == line && owner.symbol.getColumn() == column;
+    }
+
+    // Index of the file declaring a name, or -1
+    public int fileOf(String name) {
+        Declaration owner = declarations.get(name);
+        return (owner != null) ? owner.file : -1;
+    }
+
+    // Every global, one per name
+    public List<Symbol> getAllSymbols() {
+        List<Symbol> symbols = new ArrayList<>(declarations.size());
+        for (Declaration declaration : declarations.values()) {
+            symbols.add(declaration.symbol);
+        }
+        return symbols;
+    }
+
+    public int size() {
+        return declarations.size();
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+// Contention on the shared global scope of a multi-file run. For 1, 2, 4 ...
+// threads, every thread plays a file that declares the same global names
+// (so all of them race on every name) and then resolves random names
+// against the frozen table. GlobalSymbolTable is timed against the same
+// table behind one lock.
+//
+//   java GlobalTableBenchmark [names] [lookups per thread]
+//
+// Work per thread is fixed, so a table that scales shows throughput rising
+// with the thread count, up to the number of cores.
+public class GlobalTableBenchmark {
+    private static final int RUNS = 5;
+
+    // The shared scope behind one lock, the way a plain HashMap would be shared
+    private static class LockedGlobals {
+        private final Map<String, Symbol> symbols = new HashMap<>();
+        private final Map<String, Integer> files = new HashMap<>();
+
+        synchronized void declare(Symbol symbol, int file) {
+            Integer owner = files.get(symbol.getName());
+            if (owner == null || file < owner) {
+                symbols.put(symbol.getName(), symbol);
+                files.put(symbol.getName(), file);
+            }
+        }
+
+        synchronized Symbol lookup(String name) {
+            return symbols.get(name);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int nameCount = (args.length > 0) ? Integer.parseInt(args[0]) : 4096;
+        int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Symbol[] symbols = new Symbol[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            symbols[i] = new Symbol(nameOf(i), SymbolType.VARIABLE, "int", false, true, null, 0, 0, i + 1, 1);
+        }
+        System.out.println(nameCount + " names, " + lookups + " lookups per thread, " + cores + " cores");
+        System.out.printf("%-8s %-10s %12s %14s %12s %14s%n",
+                "threads", "table", "declare ms", "M declares/s", "resolve ms", "M lookups/s");
+
+        for (int threads = 1; threads <= Math.max(2 * cores, 2); threads *= 2) {
+            int[][] declares = new int[threads][];
+            int[][] resolves = new int[threads][];
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                declares[t] = permutation(nameCount, random);
+                resolves[t] = randomIndexes(nameCount, lookups, random);
+            }
+            long[] concurrent = { Long.MAX_VALUE, Long.MAX_VALUE };
+            long[] locked = { Long.MAX_VALUE, Long.MAX_VALUE };
+            for (int run = 0; run < RUNS; run++) {
+                time(concurrent, threads, symbols, declares, resolves, new GlobalSymbolTable(), null);
+                time(locked, threads, symbols, declares, resolves, null, new LockedGlobals());
+            }
+            report(threads, "concurrent", concurrent, (long) threads * nameCount, (long) threads * lookups);
+            report(threads, "locked", locked, (long) threads * nameCount, (long) threads * lookups);
+        }
+    }
+
+    // Time the declare phase then the resolve phase of one table into best
+    private static void time(long[] best, int threads, Symbol[] symbols, int[][] declares, int[][] resolves,
+                             GlobalSymbolTable concurrent, LockedGlobals locked) throws InterruptedException {
+        long start = System.nanoTime();
+        runThreads(threads, t -> {
+            for (int index : declares[t]) {
+                Symbol symbol = symbols[index];
+                if (concurrent != null) {
+                    concurrent.declare(symbol, t);
+                } else {
+                    locked.declare(symbol, t);
+                }
+            }
+        });
+        long declared = System.nanoTime();
+        if (concurrent != null) {
+            concurrent.freeze();
+        }
+        runThreads(threads, t -> {
+            int found = 0;
+            for (int index : resolves[t]) {
+                String name = symbols[index].getName();
+                Symbol symbol = (concurrent != null) ? concurrent.lookup(name, -1) : locked.lookup(name);
+                if (symbol != null) {
+                    found++;
+                }
+            }
+            if (found != resolves[t].length) {
+                throw new IllegalStateException("Lost a global: " + found + " of " + resolves[t].length);
+            }
+        });
+        long resolved = System.nanoTime();
+        best[0] = Math.min(best[0], declared - start);
+        best[1] = Math.min(best[1], resolved - declared);
+    }
+
+    private interface ThreadBody {
+        void run(int thread);
+    }
+
+    // Start threads together and wait for all of them
+    private static void runThreads(int threads, ThreadBody body) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                body.run(thread);
+            });
+            worker.start();
+            started.add(worker);
+        }
+        go.countDown();
+        for (Thread worker : started) {
+            worker.join();
+        }
+    }
+
+    private static void report(int threads, String table, long[] best, long declares, long lookups) {
+        System.out.printf("%-8d %-10s %12.2f %14.2f %12.2f %14.2f%n", threads, table,
+                best[0] / 1e6, declares / (best[0] / 1e9) / 1e6,
+                best[1] / 1e6, lookups / (best[1] / 1e9) / 1e6);
+    }
+
+    // Every name index in [0, names) once, in random order
+    private static int[] permutation(int names, Random random) {
+        int[] order = new int[names];
+        for (int i = 0; i < names; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        return order;
+    }
+
+    // count random name indexes in [0, names)
+    private static int[] randomIndexes(int names, int count, Random random) {
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = random.nextInt(names);
+        }
+        return indexes;
+    }
+
+    // An identifier for i: letters only, as IQ identifiers are. Also used
+    // by SnapshotBenchmark.
+    static String nameOf(int i) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return sb.append("glob").toString();
+    }
+}
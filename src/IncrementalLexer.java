@@ -0,0 +1,131 @@
+// Re-lexes a source after an edit by scanning only the text around it, for
+// editors that would otherwise tokenize the whole file on every keystroke:
+//
+//   TokenBuffer tokens = IncrementalLexer.lex(text);
+//   tokens = IncrementalLexer.relex(tokens, offset, removedLength, insertedText);
+//
+// Between tokens the table-driven scanner is always in the same state: the
+// DFA back at its start state and outside any comment, since comments are
+// skipped whole, as trivia, before the next token. So a token is lexed the
+// same way whatever came before its start, and two scans that reach the
+// same token start in the same text agree from there on. A re-lex resumes
+// after the last token the edit cannot have touched: maximal munch reads
+// past the end of the token it returns, by at most the DFA's lookahead
+// (ScannerTables.getMaxLookahead). It then scans until, past the inserted
+// text, it reaches a token start the old tokens also had; that token and
+// the rest are kept, shifted by the change in length.
+//
+// The tokens are the lexical ones: tokens, lexical errors and EOF, as the
+// table-driven scan finds them, without the symbol table checks. Whether an
+// identifier is declared depends on all the text before it, so that is left
+// to a full LexicalAnalyser pass.
+//
+// The scan costs time in proportion to the edit, plus any comment or
+// literal the edit opens or closes. The buffer is updated in place; what
+// remains in proportion to the file is moving the text and the tokens
+// after the edit over, which are array copies.
+public class IncrementalLexer {
+    private IncrementalLexer() {
+    }
+
+    // Lexical tokens of source, ending with EOF
+    public static TokenBuffer lex(String source) {
+        char[] chars = source.toCharArray();
+        ChunkScanner scanner = new ChunkScanner(chars, chars.length, new LineIndex(chars), 0, chars.length);
+        scanner.scan();
+        TokenBuffer tokens = scanner.getTokens();
+        tokens.add(TokenType.EOF, chars.length, 0);
+        return tokens;
+    }
+
+    // Apply an edit to a buffer from lex or relex: replace the removedLen
+    // chars at editOffset by insertedText and re-lex around them. The buffer,
+    // its source and its LineIndex are updated in place and returned.
+    public static TokenBuffer relex(TokenBuffer previousTokens, int editOffset, int removedLen, String insertedText) {
+        char[] source = previousTokens.getChars();
+        int last = previousTokens.size() - 1;
+        if (source == null || last < 0 || previousTokens.getType(last) != TokenType.EOF) {
+            throw new IllegalArgumentException("Not a token buffer from IncrementalLexer");
+        }
+        int oldLength = previousTokens.getStart(last);
+        if (editOffset < 0 || removedLen < 0 || editOffset > oldLength - removedLen) {
+            throw new IllegalArgumentException("Edit of " + removedLen + " chars at " + editOffset
+                    + " is outside the source of " + oldLength + " chars");
+        }
+
+        // Tokens [0, kept) were lexed without reading anything at or after editOffset
+        int lookahead = ScannerTables.getInstance().getMaxLookahead();
+        int kept = (lookahead == ScannerTables.UNBOUNDED)
+                ? 0
+                : Math.min(firstEndingAfter(previousTokens, editOffset - lookahead), last);
+        int position = (kept == 0) ? 0 : previousTokens.getStart(kept - 1) + previousTokens.getLength(kept - 1);
+
+        // Edit the source, growing the array with room to spare when it is full
+        int insertedLen = insertedText.length();
+        int shift = insertedLen - removedLen;
+        int length = oldLength + shift;
+        int tail = oldLength - editOffset - removedLen;
+        if (length > source.length) {
+            char[] bigger = new char[length + length / 2];
+            System.arraycopy(source, 0, bigger, 0, editOffset);
+            System.arraycopy(source, editOffset + removedLen, bigger, editOffset + insertedLen, tail);
+            source = bigger;
+            previousTokens.setChars(source);
+        } else {
+            System.arraycopy(source, editOffset + removedLen, source, editOffset + insertedLen, tail);
+        }
+        insertedText.getChars(0, insertedLen, source, editOffset);
+        LineIndex lines = previousTokens.getLineIndex();
+        lines.edit(source, length, editOffset);
+
+        // Scan up to the first token start past the inserted text that the
+        // old tokens share. There is always one: EOF.
+        ChunkScanner scanner = new ChunkScanner(source, length, lines, previousTokens.getLexemePool(),
+                position, length);
+        int insertedEnd = editOffset + insertedLen;
+        int resync;
+        while (true) {
+            position = LexicalAnalyser.skipTrivia(source, length, position);
+            if (position >= insertedEnd) {
+                resync = indexOfStart(previousTokens, kept, position - shift);
+                if (resync >= 0) {
+                    break;
+                }
+            }
+            position = scanner.scanToken(position);
+        }
+
+        previousTokens.replace(kept, resync, scanner.getTokens(), shift);
+        return previousTokens;
+    }
+
+    // Index of the first token ending after offset; token ends never decrease
+    private static int firstEndingAfter(TokenBuffer tokens, int offset) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.getStart(mid) + tokens.getLength(mid) > offset) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // Index of the token starting at position, searching from index from, or -1
+    private static int indexOfStart(TokenBuffer tokens, int from, int position) {
+        int low = from;
+        int high = tokens.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.getStart(mid) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (low < tokens.size() && tokens.getStart(low) == position) ? low : -1;
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+import java.util.Map;
+
+// Keyword recognition as a state machine over the letters 'a'..'z', built
+// from the keyword list. The identifier scan feeds it each letter as it
+// reads it, so when the identifier ends its state already says which
+// keyword, if any, was read; no lexeme is built or hashed to find out.
+//
+// States are rows of 26 transitions in one int[]. Once the letters leave
+// every keyword the state is DEAD and stays there.
+class KeywordTrie {
+    static final int ROOT = 0;
+    static final int DEAD = -1;
+    private static final int LETTERS = 26;
+
+    private final int[] next;          // next[state * LETTERS + letter], DEAD if none
+    private final TokenType[] types;   // keyword ending at each state, or null
+
+    // Keywords must be non-empty and made of 'a'..'z', like identifiers
+    KeywordTrie(Map<String, TokenType> keywords) {
+        int capacity = 1;
+        for (String keyword : keywords.keySet()) {
+            capacity += keyword.length();
+        }
+        int[] table = new int[capacity * LETTERS];
+        Arrays.fill(table, DEAD);
+        TokenType[] accepting = new TokenType[capacity];
+        int stateCount = 1;
+
+        for (Map.Entry<String, TokenType> keyword : keywords.entrySet()) {
+            String spelling = keyword.getKey();
+            if (spelling.isEmpty()) {
+                throw new IllegalArgumentException("Empty keyword");
+            }
+            int state = ROOT;
+            for (int i = 0; i < spelling.length(); i++) {
+                char c = spelling.charAt(i);
+                if (c < 'a' || c > 'z') {
+                    throw new IllegalArgumentException("Keyword '" + spelling + "' is not made of 'a'..'z'");
+                }
+                int slot = state * LETTERS + (c - 'a');
+                if (table[slot] == DEAD) {
+                    table[slot] = stateCount++;
+                }
+                state = table[slot];
+            }
+            accepting[state] = keyword.getValue();
+        }
+
+        this.next = Arrays.copyOf(table, stateCount * LETTERS);
+        this.types = Arrays.copyOf(accepting, stateCount);
+    }
+
+    // State after reading letter c ('a'..'z') in state
+    int step(int state, char c) {
+        return (state == DEAD) ? DEAD : next[state * LETTERS + (c - 'a')];
+    }
+
+    // Keyword read to reach state, or null if the letters are not a keyword
+    TokenType typeOf(int state) {
+        return (state == DEAD) ? null : types[state];
+    }
+
+    int getStateCount() {
+        return types.length;
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// DFA built on the fly from a FrozenNFA. A DFA state (a set of NFA states) is
+// only determinized when the input reaches it, and lives in a cache of fixed
+// capacity. When the cache is full a victim is chosen with the CLOCK policy
+// (second chance for recently used states). Cached transitions remember the
+// generation of their target slot, so a transition into an evicted state is
+// simply recomputed.
+//
+// If the cache thrashes, meaning too many evictions per character scanned,
+// matching falls back to plain NFA simulation for a while, which costs no
+// cache churn, and then tries the cache again.
+//
+// Not thread-safe: the cache is mutated while matching.
+public class LazyDFA {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // Transition not computed yet, or known to lead nowhere
+    private static final int UNKNOWN = -1;
+    private static final int DEAD = -2;
+
+    // Thrash check: every WINDOW steps, fall back if more than one step in
+    // THRASH_RATIO evicted a state; stay on the NFA for FALLBACK_STEPS steps
+    private static final int WINDOW = 4096;
+    private static final int THRASH_RATIO = 16;
+    private static final int FALLBACK_STEPS = 16 * WINDOW;
+
+    private final FrozenNFA nfa;
+    private final int words;
+    private final int capacity;
+
+    // Character intervals of the NFA are the symbols of the lazy DFA
+    private final char[] intervalStarts;
+    private final int[] asciiSymbols;
+    private final int symbolCount;
+
+    // Cache slots
+    private final long[][] sets;
+    private final boolean[] accepting;
+    private final int[] labels;
+    private final int[] generation;
+    private final boolean[] referenced;
+    private final int[] next;
+    private final int[] nextGeneration;
+    private final Map<StateSet, Integer> slotOf;
+    private int used;
+    private int clockHand;
+    private int startSlot;
+    private int startGeneration;
+
+    // Scratch bitsets for computing successors and for NFA fallback
+    private long[] scratch;
+    private long[] current;
+    private long[] following;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long nfaSteps;
+    private int windowSteps;
+    private int windowEvictions;
+    private int fallbackRemaining;
+    private int matchLabel;
+
+    public LazyDFA(FrozenNFA nfa) {
+        this(nfa, DEFAULT_CAPACITY);
+    }
+
+    public LazyDFA(FrozenNFA nfa, int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Lazy DFA cache needs at least 2 states, got " + capacity);
+        }
+        this.nfa = nfa;
+        this.words = nfa.getWordCount();
+        this.capacity = capacity;
+
+        this.intervalStarts = nfa.getIntervalStarts();
+        this.symbolCount = intervalStarts.length;
+        this.asciiSymbols = new int[CompactDFA.ASCII_SIZE];
+        for (char c = 0; c < CompactDFA.ASCII_SIZE; c++) {
+            asciiSymbols[c] = intervalOf(c);
+        }
+
+        this.sets = new long[capacity][];
+        this.accepting = new boolean[capacity];
+        this.labels = new int[capacity];
+        this.generation = new int[capacity];
+        this.referenced = new boolean[capacity];
+        this.next = new int[capacity * symbolCount];
+        this.nextGeneration = new int[capacity * symbolCount];
+        this.slotOf = new HashMap<>(capacity * 2);
+        this.startSlot = -1;
+
+        this.scratch = new long[words];
+        this.current = new long[words];
+        this.following = new long[words];
+    }
+
+    private int intervalOf(char c) {
+        int interval = Arrays.binarySearch(intervalStarts, c);
+        return interval >= 0 ? interval : -interval - 2;
+    }
+
+    private int symbolOf(char c) {
+        return c < CompactDFA.ASCII_SIZE ? asciiSymbols[c] : intervalOf(c);
+    }
+
+    // Longest prefix of input[start, end) accepted by the automaton. Returns
+    // the end of that prefix, or -1 if no prefix is accepted; the label of
+    // the accepting state is then available from getMatchLabel().
+    public int longestMatch(char[] input, int start, int end) {
+        int matchEnd = -1;
+        matchLabel = -1;
+
+        int slot = getStartSlot();
+        if (accepting[slot]) {
+            matchEnd = start;
+            matchLabel = labels[slot];
+        }
+
+        boolean simulating = false;
+        for (int i = start; i < end; i++) {
+            int symbol = symbolOf(input[i]);
+
+            if (!simulating && fallbackRemaining > 0) {
+                // Cache is thrashing: continue this match on the NFA
+                System.arraycopy(sets[slot], 0, current, 0, words);
+                simulating = true;
+            }
+
+            if (!simulating) {
+                slot = step(slot, symbol);
+                if (slot < 0) {
+                    break;
+                }
+                if (accepting[slot]) {
+                    matchEnd = i + 1;
+                    matchLabel = labels[slot];
+                }
+            } else {
+                nfaSteps++;
+                fallbackRemaining--;
+                if (!nfa.step(current, intervalStarts[symbol], following)) {
+                    break;
+                }
+                long[] swap = current;
+                current = following;
+                following = swap;
+                if (nfa.isAccepting(current)) {
+                    matchEnd = i + 1;
+                    matchLabel = nfa.getAcceptLabel(current);
+                }
+            }
+        }
+        return matchEnd;
+    }
+
+    // Label of the state that accepted the last longestMatch, or -1
+    public int getMatchLabel() {
+        return matchLabel;
+    }
+
+    // Whether the whole input is accepted
+    public boolean run(CharSequence input) {
+        int slot = getStartSlot();
+        for (int i = 0; i < input.length(); i++) {
+            slot = step(slot, symbolOf(input.charAt(i)));
+            if (slot < 0) {
+                return false;
+            }
+        }
+        return accepting[slot];
+    }
+
+    private int getStartSlot() {
+        if (startSlot < 0 || generation[startSlot] != startGeneration) {
+            nfa.initialStates(scratch);
+            startSlot = slotFor(scratch, -1);
+            startGeneration = generation[startSlot];
+        }
+        referenced[startSlot] = true;
+        return startSlot;
+    }
+
+    // Follow a transition, determinizing the target if it is not cached
+    private int step(int slot, int symbol) {
+        int k = slot * symbolCount + symbol;
+        int target = next[k];
+        if (target == DEAD) {
+            hits++;
+            return -1;
+        }
+        if (target >= 0 && nextGeneration[k] == generation[target]) {
+            hits++;
+            referenced[target] = true;
+            return target;
+        }
+
+        misses++;
+        countStep();
+        if (!nfa.step(sets[slot], intervalStarts[symbol], scratch)) {
+            next[k] = DEAD;
+            return -1;
+        }
+        target = slotFor(scratch, slot);
+        next[k] = target;
+        nextGeneration[k] = generation[target];
+        return target;
+    }
+
+    // Find the cached slot of a state set, or add it, evicting if necessary.
+    // The pinned slot (the state being stepped from) is never evicted.
+    private int slotFor(long[] set, int pinned) {
+        StateSet key = new StateSet(set.clone());
+        Integer existing = slotOf.get(key);
+        if (existing != null) {
+            referenced[existing] = true;
+            return existing;
+        }
+
+        int slot;
+        if (used < capacity) {
+            slot = used++;
+        } else {
+            slot = chooseVictim(pinned);
+            slotOf.remove(new StateSet(sets[slot]));
+            generation[slot]++;
+            evictions++;
+            windowEvictions++;
+        }
+
+        sets[slot] = key.bits;
+        accepting[slot] = nfa.isAccepting(key.bits);
+        labels[slot] = nfa.getAcceptLabel(key.bits);
+        referenced[slot] = true;
+        Arrays.fill(next, slot * symbolCount, (slot + 1) * symbolCount, UNKNOWN);
+        slotOf.put(key, slot);
+        return slot;
+    }
+
+    // CLOCK: sweep the slots, clearing reference bits, until one is unreferenced
+    private int chooseVictim(int pinned) {
+        while (true) {
+            int candidate = clockHand;
+            clockHand = (clockHand + 1) % capacity;
+            if (candidate == pinned) {
+                continue;
+            }
+            if (referenced[candidate]) {
+                referenced[candidate] = false;
+            } else {
+                return candidate;
+            }
+        }
+    }
+
+    private void countStep() {
+        if (++windowSteps < WINDOW) {
+            return;
+        }
+        if (windowEvictions * THRASH_RATIO > windowSteps) {
+            fallbackRemaining = FALLBACK_STEPS;
+        }
+        windowSteps = 0;
+        windowEvictions = 0;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // Characters consumed by NFA simulation while the cache was thrashing
+    public long getNfaSteps() {
+        return nfaSteps;
+    }
+
+    public int getCachedStateCount() {
+        return used;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void displayCacheStatistics() {
+        long lookups = hits + misses;
+        System.out.printf("Lazy DFA cache: %d/%d states, %d hits, %d misses (%.1f%% hit rate), %d evictions, %d NFA fallback steps%n",
+                used, capacity, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions, nfaSteps);
+    }
+
+    // Hash key over a state set bitset
+    private static class StateSet {
+        private final long[] bits;
+        private final int hash;
+
+        StateSet(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet && Arrays.equals(bits, ((StateSet) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
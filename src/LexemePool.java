@@ -0,0 +1,175 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Interning pool for lexemes, looked up by a range of the source so that a
+// name seen before costs no allocation. Each distinct lexeme gets a small
+// id, in order of first appearance, and one canonical String.
+//
+// The table is open addressing with linear probing over an int[] of ids,
+// kept at most half full. Callers pass the hash of the range, which a
+// scanner can compute as it reads the characters (see step). The hash is
+// the String.hashCode of the lexeme, so the canonical String never has to
+// compute its own.
+class LexemePool {
+    private static final int EMPTY = -1;
+
+    private int[] slots;   // id at each slot, or EMPTY
+    private int[] hashes;  // hash of each id
+    private String[] strings;
+    private int size;
+
+    LexemePool() {
+        this.slots = new int[64];
+        Arrays.fill(slots, EMPTY);
+        this.hashes = new int[32];
+        this.strings = new String[32];
+    }
+
+    // Fold the next character into a running hash; start from 0
+    static int step(int hash, int c) {
+        return 31 * hash + c;
+    }
+
+    // Hash of source[start, end), as step would compute it
+    static int hash(char[] source, int start, int end) {
+        int hash = 0;
+        for (int p = start; p < end; p++) {
+            hash = step(hash, source[p]);
+        }
+        return hash;
+    }
+
+    // Id of source[start, end), added if new
+    int intern(char[] source, int start, int end, int hash) {
+        int mask = slots.length - 1;
+        int length = end - start;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == EMPTY) {
+                return add(new String(source, start, length), hash, slot);
+            }
+            if (hashes[id] == hash && matches(strings[id], source, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    // Id of the ASCII bytes source[start, end), added if new. Only ASCII
+    // lexemes (identifiers and keywords) should be interned from bytes.
+    int intern(ByteBuffer source, int start, int end, int hash) {
+        int mask = slots.length - 1;
+        int length = end - start;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == EMPTY) {
+                char[] chars = new char[length];
+                for (int k = 0; k < length; k++) {
+                    chars[k] = (char) (source.get(start + k) & 0xff);
+                }
+                return add(new String(chars), hash, slot);
+            }
+            if (hashes[id] == hash && matches(strings[id], source, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    // Intern the spelling of each keyword and operator rule and return the
+    // id per rule index, -1 for rules without a fixed spelling
+    int[] internSpellings(List<LexerRules.Rule> rules) {
+        int[] ids = new int[rules.size()];
+        for (int i = 0; i < ids.length; i++) {
+            String spelling = rules.get(i).getSpelling();
+            ids[i] = (spelling != null) ? intern(spelling) : -1;
+        }
+        return ids;
+    }
+
+    // Id of a lexeme given as a String, added if new (as that same String)
+    int intern(String lexeme) {
+        int hash = lexeme.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == EMPTY) {
+                return add(lexeme, hash, slot);
+            }
+            if (hashes[id] == hash && strings[id].equals(lexeme)) {
+                return id;
+            }
+        }
+    }
+
+    // Canonical String of an id
+    String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Lexeme id " + id + " of " + size);
+        }
+        return strings[id];
+    }
+
+    // Number of distinct lexemes
+    int size() {
+        return size;
+    }
+
+    private int add(String lexeme, int hash, int slot) {
+        if (size == strings.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        int id = size++;
+        hashes[id] = hash;
+        strings[id] = lexeme;
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] bigger = new int[slots.length * 2];
+        Arrays.fill(bigger, EMPTY);
+        int mask = bigger.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (bigger[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            bigger[slot] = id;
+        }
+        slots = bigger;
+    }
+
+    // Spread the high bits down; 31 * h + c leaves short lexemes clustered
+    private static int mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String lexeme, char[] source, int start, int length) {
+        if (lexeme.length() != length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (lexeme.charAt(k) != source[start + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String lexeme, ByteBuffer source, int start, int length) {
+        if (lexeme.length() != length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (lexeme.charAt(k) != (source.get(start + k) & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Token rules of the IQ language, each one a regular expression compiled to a
+// Thompson NFA by NFA.compile. The position of a rule in the list is both its
+// accept label in the combined NFA and its priority: when two rules match the
+// same lexeme the lower index wins, so keywords are listed before identifiers.
+class LexerRules {
+
+    // A token rule: the token type it produces (or an error message for the
+    // malformed inputs the scanner must still consume) and its pattern.
+    // Keywords and operators also keep their spelling so scanners can reuse
+    // it instead of copying the lexeme out of the source.
+    static class Rule {
+        private final TokenType type;
+        private final String errorMessage;
+        private final String spelling;
+        private final String pattern;
+
+        private Rule(TokenType type, String errorMessage, String pattern) {
+            this(type, errorMessage, null, pattern);
+        }
+
+        private Rule(TokenType type, String spelling) {
+            this(type, null, spelling, RegexParser.quote(spelling));
+        }
+
+        private Rule(TokenType type, String errorMessage, String spelling, String pattern) {
+            this.type = type;
+            this.errorMessage = errorMessage;
+            this.spelling = spelling;
+            this.pattern = pattern;
+        }
+
+        public TokenType getType() {
+            return type;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        // Fixed lexeme of a keyword or operator rule, null for other rules
+        public String getSpelling() {
+            return spelling;
+        }
+
+        public boolean isError() {
+            return errorMessage != null;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        // Thompson NFAs are consumed by the combinators, so every call builds
+        // a fresh automaton
+        public NFA buildPattern() {
+            return NFA.compile(pattern);
+        }
+    }
+
+    // Fixed-spelling operators and delimiters, two-character ones included;
+    // unmodifiable, so the rules can be shared between threads
+    private static final Map<String, TokenType> operators;
+
+    static {
+        Map<String, TokenType> map = new TreeMap<>();
+        map.put("+", TokenType.PLUS);
+        map.put("-", TokenType.MINUS);
+        map.put("*", TokenType.MULTIPLY);
+        map.put("/", TokenType.DIVIDE);
+        map.put("%", TokenType.MODULO);
+        map.put("^", TokenType.EXPONENT);
+        map.put("=", TokenType.ASSIGN);
+        map.put("==", TokenType.EQUAL);
+        map.put("!=", TokenType.NOT_EQUAL);
+        map.put("<", TokenType.LESS_THAN);
+        map.put(">", TokenType.GREATER_THAN);
+        map.put("<=", TokenType.LESS_EQUAL);
+        map.put(">=", TokenType.GREATER_EQUAL);
+        map.put("&&", TokenType.AND);
+        map.put("||", TokenType.OR);
+        map.put("!", TokenType.NOT);
+        map.put("(", TokenType.LPAREN);
+        map.put(")", TokenType.RPAREN);
+        map.put("{", TokenType.LBRACE);
+        map.put("}", TokenType.RBRACE);
+        map.put(";", TokenType.SEMICOLON);
+        map.put(",", TokenType.COMMA);
+        operators = Collections.unmodifiableMap(map);
+    }
+
+    // One character of a literal. A surrogate pair is a single character, so
+    // a high surrogate takes the low surrogate after it along (a lone one
+    // stands for itself) and no match ends between the two halves.
+    private static final String ANY_CHAR = "([^\uD800-\uDBFF]|[\uD800-\uDBFF][\uDC00-\uDFFF]?)";
+    private static final String LITERAL_CHAR = "([^'\\\\\uD800-\uDBFF]|[\uD800-\uDBFF][\uDC00-\uDFFF]?)";
+
+    private static final List<Rule> rules = Collections.unmodifiableList(createRules());
+
+    public static List<Rule> getRules() {
+        return rules;
+    }
+
+    public static Map<String, TokenType> getOperators() {
+        return operators;
+    }
+
+    // Union of every rule's NFA, with each rule's accept state labelled by its index
+    public static NFA buildNFA() {
+        NFA combined = null;
+        for (int i = 0; i < rules.size(); i++) {
+            NFA ruleNfa = rules.get(i).buildPattern();
+            ruleNfa.getAcceptState().setAcceptLabel(i);
+            combined = (combined == null) ? ruleNfa : NFA.union(combined, ruleNfa);
+        }
+        return combined;
+    }
+
+    // Frozen form of buildNFA(), built once and shared by lazy DFA scanners
+    private static class FrozenHolder {
+        static final FrozenNFA INSTANCE = buildNFA().freeze();
+    }
+
+    public static FrozenNFA getFrozenNFA() {
+        return FrozenHolder.INSTANCE;
+    }
+
+    private static List<Rule> createRules() {
+        List<Rule> list = new ArrayList<>();
+
+        // Keywords, sorted so that rule numbering is stable between runs
+        for (Map.Entry<String, TokenType> keyword : new TreeMap<>(LexicalAnalyser.getKeywords()).entrySet()) {
+            list.add(new Rule(keyword.getValue(), keyword.getKey()));
+        }
+
+        // Identifiers and numbers
+        list.add(new Rule(TokenType.IDENTIFIER, null, "[a-z]+"));
+        list.add(new Rule(TokenType.INTEGER_LITERAL, null, "[0-9]+"));
+        list.add(new Rule(TokenType.DECIMAL_LITERAL, null, "[0-9]+\\.[0-9]+"));
+
+        // Character literals: 'c' or an escaped '\c', where c may be any
+        // character including a line break
+        list.add(new Rule(TokenType.CHARACTER_LITERAL, null, "'(" + LITERAL_CHAR + "|\\\\" + ANY_CHAR + ")'"));
+
+        // Operators and delimiters
+        for (Map.Entry<String, TokenType> operator : operators.entrySet()) {
+            list.add(new Rule(operator.getValue(), operator.getKey()));
+        }
+
+        // Malformed input, consumed exactly as far as the hand-written scanner does
+        list.add(new Rule(TokenType.ERROR, "Malformed decimal number: no digits after decimal point", "[0-9]+\\."));
+        list.add(new Rule(TokenType.ERROR, "Empty character literal", "''"));
+        list.add(new Rule(TokenType.ERROR, "Unterminated character literal",
+                "'(" + LITERAL_CHAR + "|\\\\(" + ANY_CHAR + ")?)?"));
+        list.add(new Rule(TokenType.ERROR, "Expected '&' after '&'", "&"));
+        list.add(new Rule(TokenType.ERROR, "Expected '|' after '|'", "\\|"));
+
+        return list;
+    }
+}
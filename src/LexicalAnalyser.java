@@ -1,311 +1,554 @@
 // LexicalAnalyzer.java
 import java.io.*;
 import java.util.*;
-
-// Token class to represent lexical tokens
-
-// Enum for token types
-enum TokenType {
-    // Keywords
-    NUM,        // Integer
-    DECI,       // Decimal number
-    LETTER,     // Character
-    COND,       // Boolean
-    
-    // Literals
-    INTEGER_LITERAL,
-    DECIMAL_LITERAL,
-    CHARACTER_LITERAL,
-    BOOLEAN_LITERAL,
-    
-    // Identifiers
-    IDENTIFIER,
-    
-    // Operators
-    PLUS,           // +
-    MINUS,          // -
-    MULTIPLY,       // *
-    DIVIDE,         // /
-    MODULO,         // %
-    EXPONENT,       // ^
-    
-    // Assignment
-    ASSIGN,         // =
-    
-    // Comparison
-    EQUAL,          // ==
-    NOT_EQUAL,      // !=
-    LESS_THAN,      // <
-    GREATER_THAN,   // >
-    LESS_EQUAL,     // <=
-    GREATER_EQUAL,  // >=
-    
-    // Logical operators
-    AND,            // &&
-    OR,             // ||
-    NOT,            // !
-    
-    // Delimiters
-    LPAREN,         // (
-    RPAREN,         // )
-    LBRACE,         // {
-    RBRACE,         // }
-    SEMICOLON,      // ;
-    COMMA,          // ,
-    
-    // Input/Output
-    INPUT,          // read
-    OUTPUT,         // print
-    
-    // Comments
-    COMMENT,
-    
-    // Special
-    EOF,            // End of file
-    ERROR           // Error token
-}
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 // Lexical Analyzer class
 public class LexicalAnalyser {
-    private String sourceCode;
-    private List<String> lines;
-    private List<Token> tokens;
-    private int currentLine;
-    private int currentPosition;
+    private final char[] source;
+    private final int length;
+    private TokenBuffer tokens;
+    private TokenBuffer.Cursor lastToken; // flyweight over the token just added
+    private final LineIndex lines;
+    private int offset; // offset of currentChar, length at EOF
     private char currentChar;
     private boolean hasError;
     private List<String> errors;
+    private ScanMode scanMode;
+    private LazyDFA lazyDFA;
+    
+    // Symbol table, filled in as tokens are produced
+    private DeclarationTracker declarations;
+    
+    // Identifiers, keywords and operators are interned, with the spelling of
+    // every keyword and operator rule going into the pool first
+    private final LexemePool lexemes;
+    private final int[] ruleLexemeIds;
+    private final int[] typeLexemeIds; // by TokenType ordinal, -1 if no fixed spelling
     
-    // Add SymbolTable reference
-    private SymbolTable symbolTable;
-    private String currentDataType = null; // Track current data type for variable declarations
+    // PARALLEL mode: chunks per pool thread, so that uneven chunks even out,
+    // and the smallest chunk worth a task
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
     
-    // Keywords map (all lowercase as specified)
-    private static final Map<String, TokenType> keywords = new HashMap<>();
-    // Data type keywords mapping to their actual type names
-    private static final Map<String, String> dataTypeKeywords = new HashMap<>();
+    // Keywords map (all lowercase as specified). Like all static state of the
+    // scanner it is only written during class initialization, so one class
+    // can serve analysers on many threads.
+    private static final Map<String, TokenType> keywords;
     
     static {
-        keywords.put("num", TokenType.NUM);
-        keywords.put("deci", TokenType.DECI);
-        keywords.put("letter", TokenType.LETTER);
-        keywords.put("cond", TokenType.COND);
-        keywords.put("true", TokenType.BOOLEAN_LITERAL);
-        keywords.put("false", TokenType.BOOLEAN_LITERAL);
-        keywords.put("read", TokenType.INPUT);
-        keywords.put("print", TokenType.OUTPUT);
-        
-        // Map keyword tokens to actual data types
-        dataTypeKeywords.put("num", "int");
-        dataTypeKeywords.put("deci", "float");
-        dataTypeKeywords.put("letter", "char");
-        dataTypeKeywords.put("cond", "boolean");
+        Map<String, TokenType> map = new HashMap<>();
+        map.put("num", TokenType.NUM);
+        map.put("deci", TokenType.DECI);
+        map.put("letter", TokenType.LETTER);
+        map.put("cond", TokenType.COND);
+        map.put("true", TokenType.BOOLEAN_LITERAL);
+        map.put("false", TokenType.BOOLEAN_LITERAL);
+        map.put("read", TokenType.INPUT);
+        map.put("print", TokenType.OUTPUT);
+        keywords = Collections.unmodifiableMap(map);
     }
     
+    // Recognizes keywords during the identifier scan, built from the map above
+    private static final KeywordTrie keywordTrie = new KeywordTrie(keywords);
+    
+    // HAND_WRITTEN stays the default: the DFA modes produce the same output
+    // (see ScannerDifferentialTest) but are not faster end to end yet
     public LexicalAnalyser(String sourceCode) {
-        this.sourceCode = preprocessCode(sourceCode);
-        this.lines = Arrays.asList(this.sourceCode.split("\n"));
-        this.tokens = new ArrayList<>();
-        this.currentLine = 0;
-        this.currentPosition = 0;
+        this(sourceCode, ScanMode.HAND_WRITTEN);
+    }
+    
+    // The source is scanned in place: comments and whitespace are skipped by
+    // the scanners themselves, so there is no separate preprocessing pass
+    public LexicalAnalyser(String sourceCode, ScanMode scanMode) {
+        this.scanMode = scanMode;
+        this.source = sourceCode.toCharArray();
+        this.length = source.length;
+        this.lines = new LineIndex(source);
+        this.lexemes = new LexemePool();
+        this.ruleLexemeIds = lexemes.internSpellings(LexerRules.getRules());
+        this.typeLexemeIds = lexemeIdsByType(ruleLexemeIds);
+        this.tokens = new TokenBuffer(source, lines, lexemes);
+        this.lastToken = tokens.cursor();
         this.hasError = false;
         this.errors = new ArrayList<>();
-        this.symbolTable = new SymbolTable(); // Initialize the symbol table
+        this.declarations = new DeclarationTracker(); // Initialize the symbol table
         
-        if (!lines.isEmpty()) {
-            advanceChar();
+        moveTo(0);
+    }
+    
+    // Interned spelling of each token type that has one, from the rules'
+    // spellings
+    private static int[] lexemeIdsByType(int[] ruleLexemeIds) {
+        int[] ids = new int[TokenType.values().length];
+        Arrays.fill(ids, -1);
+        List<LexerRules.Rule> rules = LexerRules.getRules();
+        for (int i = 0; i < ruleLexemeIds.length; i++) {
+            if (ruleLexemeIds[i] >= 0) {
+                ids[rules.get(i).getType().ordinal()] = ruleLexemeIds[i];
+            }
         }
+        return ids;
+    }
+    
+    // Keyword spellings and their token types, used to build the token rules
+    static Map<String, TokenType> getKeywords() {
+        return keywords;
+    }
+    
+    // Line and column lookup for offsets in the source
+    public LineIndex getLineIndex() {
+        return lines;
     }
     
     // Getter for the symbol table
     public SymbolTable getSymbolTable() {
-        return symbolTable;
+        return declarations.getSymbolTable();
     }
     
-    // Preprocess the source code (unchanged from your original)
-    private String preprocessCode(String code) {
-        // First, normalize line endings
-        code = code.replaceAll("\r\n", "\n").replaceAll("\r", "\n");
-        
-        // Remove single-line comments (using // for demonstration)
-        StringBuilder processed = new StringBuilder();
-        String[] lines = code.split("\n");
-        
-        boolean inMultiLineComment = false;
-        
-        for (String line : lines) {
-            int i = 0;
-            while (i < line.length()) {
-                // Check for single-line comment
-                if (!inMultiLineComment && i + 1 < line.length() && line.charAt(i) == '/' && line.charAt(i + 1) == '/') {
-                    break;  // Ignore rest of the line
-                }
-                
-                // Check for start of multi-line comment
-                if (!inMultiLineComment && i + 1 < line.length() && line.charAt(i) == '/' && line.charAt(i + 1) == '*') {
-                    inMultiLineComment = true;
-                    i += 2;
-                    continue;
-                }
-                
-                // Check for end of multi-line comment
-                if (inMultiLineComment && i + 1 < line.length() && line.charAt(i) == '*' && line.charAt(i + 1) == '/') {
-                    inMultiLineComment = false;
-                    i += 2;
-                    continue;
+    // Scopes of the source by offset, for visibility queries
+    public ScopeTree getScopeTree() {
+        return declarations.getScopeTree();
+    }
+    
+    // Def-use index of the identifiers in the source
+    public ReferenceIndex getReferenceIndex() {
+        return declarations.getReferenceIndex();
+    }
+    
+    // Symbols visible to an identifier at a 1-based line and column
+    public List<Symbol> getVisibleSymbols(int line, int column) {
+        return declarations.getScopeTree().visibleAt(lines.offsetOf(line, column));
+    }
+    
+    // Whether a comment or whitespace starts at offset p
+    private boolean startsTrivia(int p) {
+        char c = source[p];
+        return Character.isWhitespace(c)
+                || (c == '/' && p + 1 < length && (source[p + 1] == '/' || source[p + 1] == '*'));
+    }
+    
+    // Skip whitespace, // line comments and /* block comments */ starting at
+    // p and return the offset of the next significant character. An
+    // unterminated block comment runs to the end of the source.
+    private int skipTrivia(int p) {
+        return skipTrivia(source, length, p);
+    }
+    
+    static int skipTrivia(char[] source, int length, int p) {
+        while (p < length) {
+            char c = source[p];
+            if (Character.isWhitespace(c)) {
+                p++;
+            } else if (c == '/' && p + 1 < length && source[p + 1] == '/') {
+                p += 2;
+                while (p < length && source[p] != '\n' && source[p] != '\r') {
+                    p++;
                 }
-                
-                // If not in comment, append character
-                if (!inMultiLineComment) {
-                    processed.append(line.charAt(i));
+            } else if (c == '/' && p + 1 < length && source[p + 1] == '*') {
+                p += 2;
+                while (p < length && !(source[p] == '*' && p + 1 < length && source[p + 1] == '/')) {
+                    p++;
                 }
-                
-                i++;
+                p = Math.min(p + 2, length);
+            } else {
+                break;
             }
-            processed.append('\n');
         }
-        
-        // Normalize whitespace (collapse multiple spaces to single space)
-        return processed.toString().replaceAll("\\s+", " ").trim();
+        return p;
+    }
+    
+    // Chars taken by the character at p: 2 for a surrogate pair, else 1.
+    // Every scanner consumes and reports a supplementary character as one
+    // character, as ByteScanner does with its UTF-8 bytes.
+    static int charCount(char[] source, int length, int p) {
+        return (Character.isHighSurrogate(source[p]) && p + 1 < length
+                && Character.isLowSurrogate(source[p + 1])) ? 2 : 1;
+    }
+    
+    // Character handling for the hand-written scanner. At EOF currentChar
+    // is '\0', but a '\0' in the source is an ordinary (unexpected)
+    // character, so the end is tested on offset.
+    private void moveTo(int p) {
+        offset = p;
+        currentChar = (p < length) ? source[p] : '\0';
+    }
+    
+    private boolean atEnd() {
+        return offset >= length;
     }
     
-    // Character handling methods unchanged from your original
     private void advanceChar() {
-        if (currentLine >= lines.size()) {
-            currentChar = '\0'; // EOF marker
-            return;
-        }
-        
-        String currentLineText = lines.get(currentLine);
-        
-        if (currentPosition >= currentLineText.length()) {
-            // Move to next line
-            currentLine++;
-            currentPosition = 0;
-            
-            if (currentLine >= lines.size()) {
-                currentChar = '\0'; // EOF marker
-                return;
-            }
-            
-            currentLineText = lines.get(currentLine);
-        }
-        
-        if (currentPosition < currentLineText.length()) {
-            currentChar = currentLineText.charAt(currentPosition++);
-        } else {
-            currentChar = '\n';
-            currentLine++;
-            currentPosition = 0;
-        }
+        moveTo(Math.min(offset + 1, length));
     }
     
     private char peekChar() {
-        if (currentLine >= lines.size()) {
-            return '\0'; // EOF marker
-        }
-        
-        String currentLineText = lines.get(currentLine);
-        
-        if (currentPosition >= currentLineText.length()) {
-            // Would move to next line
-            return '\n';
-        }
-        
-        return currentLineText.charAt(currentPosition);
+        return (offset + 1 < length) ? source[offset + 1] : '\0';
     }
     
-    // Main tokenization method with symbol table integration
+    // Main tokenization method with symbol table integration. The tokens are
+    // returned as a List view over the TokenBuffer.
     public List<Token> tokenize() {
-        while (currentChar != '\0') {
-            if (Character.isWhitespace(currentChar)) {
-                // Skip whitespace
-                advanceChar();
+        return tokenizeToBuffer().asList();
+    }
+    
+    // Tokenize into column-wise storage, without a Token object per token
+    public TokenBuffer tokenizeToBuffer() {
+        if (scanMode == ScanMode.TABLE_DRIVEN) {
+            return tokenizeTableDriven();
+        }
+        if (scanMode == ScanMode.LAZY_DFA) {
+            return tokenizeLazy();
+        }
+        if (scanMode == ScanMode.GENERATED) {
+            return tokenizeGenerated();
+        }
+        if (scanMode == ScanMode.PARALLEL) {
+            int chunks = Math.min(ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD,
+                    length / MIN_CHUNK_SIZE);
+            return tokenizeParallel(Math.max(chunks, 1));
+        }
+        
+        while (!atEnd()) {
+            if (startsTrivia(offset)) {
+                // Skip whitespace and comments
+                moveTo(skipTrivia(offset));
                 continue;
             }
             
             // Track starting position for error reporting
-            int tokenLine = currentLine + 1; // 1-based line numbers
-            int tokenColumn = currentPosition;
+            int tokenStart = offset;
             
             if (isAlphaLower(currentChar)) {
                 // Identifier or keyword
-                String lexeme = scanIdentifier();
-                TokenType type = keywords.getOrDefault(lexeme, TokenType.IDENTIFIER);
-                
-                Token token = new Token(type, lexeme, tokenLine, tokenColumn);
-                tokens.add(token);
-                
-                // Handle symbol table entries based on token type
-                handleSymbolTableEntry(token);
-            } else if (Character.isDigit(currentChar)) {
+                scanIdentifier(tokenStart);
+            } else if (isDigit(currentChar)) {
                 // Number literal
-                scanNumber(tokenLine, tokenColumn);
+                scanNumber(tokenStart);
             } else if (currentChar == '\'') {
                 // Character literal
-                scanCharLiteral(tokenLine, tokenColumn);
+                scanCharLiteral(tokenStart);
             } else {
                 // Operators and other symbols
-                scanOperatorOrDelimiter(tokenLine, tokenColumn);
+                scanOperatorOrDelimiter(tokenStart);
             }
         }
         
         // Add EOF token
-        tokens.add(new Token(TokenType.EOF, "", currentLine + 1, currentPosition));
+        tokens.add(TokenType.EOF, length, 0);
         return tokens;
     }
     
-    // Helper method to handle symbol table entries
-    private void handleSymbolTableEntry(Token token) {
-        if (token.getType() == TokenType.NUM || 
-            token.getType() == TokenType.DECI || 
-            token.getType() == TokenType.LETTER || 
-            token.getType() == TokenType.COND) {
-            // This is a data type declaration, store it for upcoming identifiers
-            currentDataType = dataTypeKeywords.get(token.getLexeme());
-        }
-        else if (token.getType() == TokenType.IDENTIFIER) {
-            // Handle identifiers
-            if (currentDataType != null) {
-                // This identifier follows a data type declaration, so it's a variable declaration
-                boolean isGlobal = symbolTable.getCurrentScope() == 0;
-                boolean inserted = symbolTable.insert(
-                    token.getLexeme(),           // name
-                    SymbolType.VARIABLE,         // type
-                    currentDataType,             // dataType
-                    false,                       // isConstant (assume non-constant by default)
-                    isGlobal,                    // isGlobal
-                    null,                        // value (initially null)
-                    token.getLine(),             // line
-                    token.getColumn()            // column
-                );
-                
-                if (!inserted) {
-                    reportError(token.getLine(), token.getColumn(),
-                        "Redeclaration of identifier '" + token.getLexeme() + "' in the same scope");
+    // Table-driven tokenization: one maximal-munch loop over the DFA tables.
+    // Produces the same tokens, errors and symbol table as the hand-written scan.
+    private TokenBuffer tokenizeTableDriven() {
+        ScannerTables tables = ScannerTables.getInstance();
+        CompactDFA dfa = tables.getDFA();
+        int[] asciiClasses = tables.getAsciiClasses();
+        int[] transitions = tables.getTransitions();
+        int[] acceptRules = tables.getAcceptRules();
+        int classCount = tables.getClassCount();
+        int startState = tables.getStartState();
+        List<LexerRules.Rule> rules = LexerRules.getRules();
+        
+        char[] input = source;
+        int position = 0;
+        
+        while (position < length) {
+            // Blanks and line breaks between tokens, without the general test
+            char first = input[position];
+            if (first == ' ' || first == '\n') {
+                position++;
+                continue;
+            }
+            if (startsTrivia(position)) {
+                position = skipTrivia(position);
+                continue;
+            }
+            
+            // Run the DFA as far as it goes, remembering the last accepting
+            // point. Only identifiers need a hash, so it is computed after
+            // the match rather than for every character read.
+            int state = startState;
+            int acceptedRule = -1;
+            int acceptedEnd = position;
+            for (int i = position; i < length; i++) {
+                char c = input[i];
+                int symbolClass = (c < ScannerTables.ASCII_SIZE) ? asciiClasses[c] : dfa.classOf(c);
+                state = transitions[state * classCount + symbolClass];
+                if (state < 0) {
+                    break;
                 }
-            } else {
-                // This is a reference to an existing identifier
-                Symbol symbol = symbolTable.lookup(token.getLexeme());
-                if (symbol == null) {
-                    reportError(token.getLine(), token.getColumn(),
-                        "Undeclared identifier: " + token.getLexeme());
+                if (acceptRules[state] >= 0) {
+                    acceptedRule = acceptRules[state];
+                    acceptedEnd = i + 1;
+                }
+            }
+            
+            position = emitMatch(input, position, acceptedRule, acceptedEnd, rules);
+        }
+        
+        tokens.add(TokenType.EOF, length, 0);
+        return tokens;
+    }
+    
+    // Lazy DFA tokenization: same maximal munch as tokenizeTableDriven, but
+    // DFA states are only built when the input reaches them
+    private TokenBuffer tokenizeLazy() {
+        if (lazyDFA == null) {
+            lazyDFA = new LazyDFA(LexerRules.getFrozenNFA());
+        }
+        List<LexerRules.Rule> rules = LexerRules.getRules();
+        
+        char[] input = source;
+        int position = 0;
+        
+        while (position < length) {
+            if (startsTrivia(position)) {
+                position = skipTrivia(position);
+                continue;
+            }
+            
+            int acceptedEnd = lazyDFA.longestMatch(input, position, length);
+            int acceptedRule = (acceptedEnd > position) ? lazyDFA.getMatchLabel() : -1;
+            position = emitMatch(input, position, acceptedRule, acceptedEnd, rules);
+        }
+        
+        tokens.add(TokenType.EOF, length, 0);
+        return tokens;
+    }
+    
+    // Generated-code tokenization: the DFA is compiled into GeneratedScanner,
+    // which returns the rule and end of the longest match packed in a long
+    private TokenBuffer tokenizeGenerated() {
+        if (!ScannerGenerator.isUpToDate()) {
+            throw new IllegalStateException("GeneratedScanner is out of date with LexerRules; run java ScannerGenerator");
+        }
+        List<LexerRules.Rule> rules = LexerRules.getRules();
+        
+        char[] input = source;
+        int position = 0;
+        
+        while (position < length) {
+            if (startsTrivia(position)) {
+                position = skipTrivia(position);
+                continue;
+            }
+            
+            long match = GeneratedScanner.match(input, position, length);
+            int acceptedRule = (int) (match >> 32);
+            int acceptedEnd = (int) match;
+            position = emitMatch(input, position, acceptedRule, acceptedEnd, rules);
+        }
+        
+        tokens.add(TokenType.EOF, length, 0);
+        return tokens;
+    }
+    
+    // Parallel tokenization: the source is cut into chunks at line breaks and
+    // the chunks are lexed at the same time (see ChunkScanner). They are then
+    // stitched together in order on this thread, which is also where error
+    // positions are resolved and the symbol table is built, since scopes
+    // depend on every brace before a token.
+    TokenBuffer tokenizeParallel(int chunkCount) {
+        ChunkScanner[] chunks = ChunkScanner.split(source, length, lines, chunkCount);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.length);
+        for (ChunkScanner chunk : chunks) {
+            tasks.add(ForkJoinPool.commonPool().submit(chunk::scan));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        
+        // Tokens rescanned where a chunk did not start on a token boundary
+        ChunkScanner fixup = new ChunkScanner(source, length, lines, 0, length);
+        int[] fixupIds = new int[0];
+        
+        int total = 1;
+        for (ChunkScanner chunk : chunks) {
+            total += chunk.getTokens().size();
+        }
+        tokens.ensureCapacity(total);
+        
+        int position = 0; // where the tokens merged so far end
+        for (ChunkScanner chunk : chunks) {
+            int first = 0;
+            if (position > chunk.getStart()) {
+                // The previous chunk ran past this one's start: rescan until
+                // reaching a token this chunk also found
+                first = -1;
+                while (first < 0) {
+                    int tokenStart = skipTrivia(position);
+                    if (tokenStart >= chunk.getEnd()) {
+                        position = tokenStart;
+                        break;
+                    }
+                    first = chunk.indexOfStart(tokenStart);
+                    if (first < 0) {
+                        position = fixup.scanToken(tokenStart);
+                        fixupIds = mergeToken(fixup, fixup.getTokens().size() - 1, fixupIds);
+                    }
+                }
+                if (first < 0) {
+                    continue; // no token of this chunk survives
                 }
             }
+            mergeTokens(chunk, first);
+            position = chunk.getExit();
         }
-        else if (token.getType() == TokenType.LBRACE) {
-            // Opening brace, enter a new scope
-            symbolTable.enterScope();
-            currentDataType = null; // Reset current data type
+        
+        tokens.add(TokenType.EOF, length, 0);
+        return tokens;
+    }
+    
+    // Append the tokens of a chunk from index first on. The symbol table is
+    // updated through a cursor over the chunk's own buffer, and the runs of
+    // tokens between errors are copied over in bulk.
+    private void mergeTokens(ChunkScanner chunk, int first) {
+        TokenBuffer chunkTokens = chunk.getTokens();
+        LexemePool chunkPool = chunk.getLexemePool();
+        int[] ids = new int[chunkPool.size()];
+        Arrays.fill(ids, -1);
+        TokenBuffer.Cursor cursor = chunkTokens.cursor();
+        
+        int runStart = first; // first token not copied yet
+        for (int i = first; i < chunkTokens.size(); i++) {
+            int start = chunkTokens.getStart(i);
+            int end = start + chunkTokens.getLength(i);
+            int chunkId = chunkTokens.getLexemeId(i);
+            if (chunkId >= 0 && ids[chunkId] < 0) {
+                // The canonical String already holds the lexeme's hash
+                ids[chunkId] = lexemes.intern(source, start, end, chunkPool.get(chunkId).hashCode());
+            }
+            
+            if (chunkTokens.getType(i) == TokenType.ERROR) {
+                tokens.append(chunkTokens, runStart, i, ids);
+                reportError(start, end, chunkTokens.getLexeme(i));
+                runStart = i + 1;
+                continue;
+            }
+            cursor.moveTo(i);
+            String error = declarations.accept(cursor);
+            if (error != null) {
+                tokens.append(chunkTokens, runStart, i + 1, ids);
+                reportError(start, end, error);
+                runStart = i + 1;
+            }
         }
-        else if (token.getType() == TokenType.RBRACE) {
-            // Closing brace, exit the current scope
-            symbolTable.exitScope();
-            currentDataType = null; // Reset current data type
+        tokens.append(chunkTokens, runStart, chunkTokens.size(), ids);
+    }
+    
+    // Append token i of a chunk: errors are reported, other tokens go through
+    // the symbol table. Lexeme ids are translated to this analyser's pool
+    // through ids (chunk id to own id, -1 if not seen yet), which is grown
+    // as needed and returned.
+    private int[] mergeToken(ChunkScanner chunk, int i, int[] ids) {
+        TokenBuffer chunkTokens = chunk.getTokens();
+        int start = chunkTokens.getStart(i);
+        int tokenLength = chunkTokens.getLength(i);
+        TokenType type = chunkTokens.getType(i);
+        if (type == TokenType.ERROR) {
+            reportError(start, start + tokenLength, chunkTokens.getLexeme(i));
+            return ids;
         }
-        else if (token.getType() == TokenType.SEMICOLON) {
-            // End of statement, reset current data type
-            currentDataType = null;
+        
+        int chunkId = chunkTokens.getLexemeId(i);
+        int lexemeId = -1;
+        if (chunkId >= 0) {
+            if (chunkId >= ids.length) {
+                int oldLength = ids.length;
+                ids = Arrays.copyOf(ids, Math.max(chunk.getLexemePool().size(), chunkId + 1));
+                Arrays.fill(ids, oldLength, ids.length, -1);
+            }
+            if (ids[chunkId] < 0) {
+                // The canonical String already holds the lexeme's hash
+                ids[chunkId] = lexemes.intern(source, start, start + tokenLength,
+                        chunk.getLexemePool().get(chunkId).hashCode());
+            }
+            lexemeId = ids[chunkId];
+        }
+        tokens.add(type, start, tokenLength, lexemeId);
+        lastToken.moveTo(tokens.size() - 1);
+        handleSymbolTableEntry(lastToken);
+        return ids;
+    }
+    
+    // Turn the longest match at position into a token or an error and return
+    // the position after it. With no match (acceptedRule -1) one character is
+    // reported and skipped. Scanners that do not hash the match as they read
+    // it get identifiers hashed here.
+    private int emitMatch(char[] input, int position, int acceptedRule, int acceptedEnd,
+                          List<LexerRules.Rule> rules) {
+        int hash = (acceptedRule >= 0 && rules.get(acceptedRule).getType() == TokenType.IDENTIFIER)
+                ? LexemePool.hash(input, position, acceptedEnd)
+                : 0;
+        return emitMatch(input, position, acceptedRule, acceptedEnd, hash, rules);
+    }
+    
+    // Same, with acceptedHash the LexemePool hash of input[position, acceptedEnd)
+    private int emitMatch(char[] input, int position, int acceptedRule, int acceptedEnd, int acceptedHash,
+                          List<LexerRules.Rule> rules) {
+        if (acceptedRule < 0) {
+            int end = position + charCount(input, length, position);
+            reportError(position, end, "Unexpected character: " + new String(input, position, end - position));
+            return end;
+        }
+        
+        // The lexeme stays in the source; TokenBuffer copies it out on request
+        LexerRules.Rule rule = rules.get(acceptedRule);
+        if (rule.isError()) {
+            reportError(position, acceptedEnd, rule.getErrorMessage());
+        } else if (rule.getType() == TokenType.INTEGER_LITERAL && !fitsInInt(input, position, acceptedEnd)) {
+            reportError(position, acceptedEnd,
+                    "Invalid integer format: " + new String(input, position, acceptedEnd - position));
+        } else {
+            int lexemeId = (rule.getType() == TokenType.IDENTIFIER)
+                    ? lexemes.intern(input, position, acceptedEnd, acceptedHash)
+                    : ruleLexemeIds[acceptedRule];
+            tokens.add(rule.getType(), position, acceptedEnd - position, lexemeId);
+            lastToken.moveTo(tokens.size() - 1);
+            handleSymbolTableEntry(lastToken);
+        }
+        return acceptedEnd;
+    }
+    
+    // Interned identifiers, keywords and operators of this source
+    public LexemePool getLexemePool() {
+        return lexemes;
+    }
+    
+    // Cache statistics of the lazy DFA scan, or null in the other modes
+    public LazyDFA getLazyDFA() {
+        return lazyDFA;
+    }
+    
+    static boolean fitsInInt(String digits) {
+        try {
+            Integer.parseInt(digits);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    // Same check for the ASCII digits in input[start, end), without a String
+    static boolean fitsInInt(char[] input, int start, int end) {
+        long value = 0;
+        for (int p = start; p < end; p++) {
+            value = value * 10 + (input[p] - '0');
+            if (value > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Helper method to handle symbol table entries
+    private void handleSymbolTableEntry(Token token) {
+        String error = declarations.accept(token);
+        if (error != null) {
+            reportError(token.getStart(), token.getEnd(), error);
         }
     }
     
@@ -314,245 +557,218 @@ public class LexicalAnalyser {
         return c >= 'a' && c <= 'z';
     }
     
-    private String scanIdentifier() {
-        StringBuilder sb = new StringBuilder();
+    // ASCII digits only, as in the [0-9] of LexerRules: other Unicode digits
+    // such as '\u0663' are unexpected characters in every scan mode
+    private boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    // Scan [a-z]+ as an identifier or keyword. Each letter steps the keyword
+    // trie and the lexeme hash, so the type and interned id are known as
+    // soon as the letters end.
+    private void scanIdentifier(int start) {
+        int keywordState = KeywordTrie.ROOT;
+        int hash = 0;
         
         while (isAlphaLower(currentChar)) {
-            sb.append(currentChar);
+            keywordState = keywordTrie.step(keywordState, currentChar);
+            hash = LexemePool.step(hash, currentChar);
             advanceChar();
         }
         
-        return sb.toString();
+        TokenType keyword = keywordTrie.typeOf(keywordState);
+        TokenType type = (keyword != null) ? keyword : TokenType.IDENTIFIER;
+        tokens.add(type, start, offset - start, lexemes.intern(source, start, offset, hash));
+        lastToken.moveTo(tokens.size() - 1);
+        
+        // Handle symbol table entries based on token type
+        handleSymbolTableEntry(lastToken);
     }
     
-    private void scanNumber(int line, int column) {
-        StringBuilder sb = new StringBuilder();
-        boolean isDecimal = false;
-        
+    // Scan digits, optionally followed by '.' and more digits. The lexeme
+    // stays in the source, as for the DFA scanners.
+    private void scanNumber(int start) {
         // Scan whole number part
-        while (Character.isDigit(currentChar)) {
-            sb.append(currentChar);
+        while (isDigit(currentChar)) {
             advanceChar();
         }
         
         // Check for decimal point
         if (currentChar == '.') {
-            isDecimal = true;
-            sb.append(currentChar);
             advanceChar();
             
             // Scan decimal part
             boolean hasDecimalDigits = false;
-            while (Character.isDigit(currentChar)) {
-                sb.append(currentChar);
+            while (isDigit(currentChar)) {
                 hasDecimalDigits = true;
                 advanceChar();
             }
             
             if (!hasDecimalDigits) {
                 // Error: Decimal point with no digits
-                reportError(line, column, "Malformed decimal number: no digits after decimal point");
+                reportError(start, offset, "Malformed decimal number: no digits after decimal point");
                 return;
             }
-        }
-        
-        String numberStr = sb.toString();
-        if (isDecimal) {
-            try {
-                // Validate decimal is within precision (5 decimal places)
-                double value = Double.parseDouble(numberStr);
-                tokens.add(new Token(TokenType.DECIMAL_LITERAL, numberStr, line, column));
-            } catch (NumberFormatException e) {
-                reportError(line, column, "Invalid decimal number format: " + numberStr);
-            }
+            tokens.add(TokenType.DECIMAL_LITERAL, start, offset - start);
+        } else if (fitsInInt(source, start, offset)) {
+            tokens.add(TokenType.INTEGER_LITERAL, start, offset - start);
         } else {
-            try {
-                int value = Integer.parseInt(numberStr);
-                tokens.add(new Token(TokenType.INTEGER_LITERAL, numberStr, line, column));
-            } catch (NumberFormatException e) {
-                reportError(line, column, "Invalid integer format: " + numberStr);
-            }
+            reportError(start, offset, "Invalid integer format: " + new String(source, start, offset - start));
         }
     }
     
-    private void scanCharLiteral(int line, int column) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(currentChar); // Append opening quote
-        advanceChar();
+    private void scanCharLiteral(int start) {
+        advanceChar(); // Skip opening quote
         
         // Check for empty character literal
         if (currentChar == '\'') {
-            reportError(line, column, "Empty character literal");
+            reportError(start, offset + 1, "Empty character literal");
             advanceChar();
             return;
         }
         
         // Read character (handle escape sequences if needed)
         if (currentChar == '\\') {
-            sb.append(currentChar);
             advanceChar();
-            if (currentChar == '\0') {
-                reportError(line, column, "Unterminated character literal");
+            if (atEnd()) {
+                reportError(start, offset, "Unterminated character literal");
                 return;
             }
-            sb.append(currentChar);
-            advanceChar();
-        } else {
-            sb.append(currentChar);
-            advanceChar();
         }
+        skipChar();
         
         // Check for closing quote
         if (currentChar != '\'') {
-            reportError(line, column, "Unterminated character literal");
+            reportError(start, offset, "Unterminated character literal");
             return;
         }
+        advanceChar(); // Skip closing quote
         
-        sb.append(currentChar); // Append closing quote
-        advanceChar();
-        
-        tokens.add(new Token(TokenType.CHARACTER_LITERAL, sb.toString(), line, column));
+        tokens.add(TokenType.CHARACTER_LITERAL, start, offset - start);
     }
     
-    private void scanOperatorOrDelimiter(int line, int column) {
-        Token token = null;
+    // Move past the character at offset; a surrogate pair is one character
+    private void skipChar() {
+        if (!atEnd()) {
+            moveTo(offset + charCount(source, length, offset));
+        }
+    }
+    
+    // Operators and delimiters get the interned id of their spelling, so
+    // neither a Token nor a String is made for them
+    private void scanOperatorOrDelimiter(int start) {
+        TokenType type;
+        int tokenLength = 1;
         
         switch (currentChar) {
             case '+':
-                token = new Token(TokenType.PLUS, "+", line, column);
-                advanceChar();
+                type = TokenType.PLUS;
                 break;
             case '-':
-                token = new Token(TokenType.MINUS, "-", line, column);
-                advanceChar();
+                type = TokenType.MINUS;
                 break;
             case '*':
-                token = new Token(TokenType.MULTIPLY, "*", line, column);
-                advanceChar();
+                type = TokenType.MULTIPLY;
                 break;
             case '/':
-                token = new Token(TokenType.DIVIDE, "/", line, column);
-                advanceChar();
+                type = TokenType.DIVIDE;
                 break;
             case '%':
-                token = new Token(TokenType.MODULO, "%", line, column);
-                advanceChar();
+                type = TokenType.MODULO;
                 break;
             case '^':
-                token = new Token(TokenType.EXPONENT, "^", line, column);
-                advanceChar();
+                type = TokenType.EXPONENT;
                 break;
             case '=':
                 if (peekChar() == '=') {
-                    advanceChar();
-                    token = new Token(TokenType.EQUAL, "==", line, column);
-                    advanceChar();
+                    type = TokenType.EQUAL;
+                    tokenLength = 2;
                 } else {
-                    token = new Token(TokenType.ASSIGN, "=", line, column);
-                    advanceChar();
+                    type = TokenType.ASSIGN;
                 }
                 break;
             case '!':
                 if (peekChar() == '=') {
-                    advanceChar();
-                    token = new Token(TokenType.NOT_EQUAL, "!=", line, column);
-                    advanceChar();
+                    type = TokenType.NOT_EQUAL;
+                    tokenLength = 2;
                 } else {
-                    token = new Token(TokenType.NOT, "!", line, column);
-                    advanceChar();
+                    type = TokenType.NOT;
                 }
                 break;
             case '<':
                 if (peekChar() == '=') {
-                    advanceChar();
-                    token = new Token(TokenType.LESS_EQUAL, "<=", line, column);
-                    advanceChar();
+                    type = TokenType.LESS_EQUAL;
+                    tokenLength = 2;
                 } else {
-                    token = new Token(TokenType.LESS_THAN, "<", line, column);
-                    advanceChar();
+                    type = TokenType.LESS_THAN;
                 }
                 break;
             case '>':
                 if (peekChar() == '=') {
-                    advanceChar();
-                    token = new Token(TokenType.GREATER_EQUAL, ">=", line, column);
-                    advanceChar();
+                    type = TokenType.GREATER_EQUAL;
+                    tokenLength = 2;
                 } else {
-                    token = new Token(TokenType.GREATER_THAN, ">", line, column);
-                    advanceChar();
+                    type = TokenType.GREATER_THAN;
                 }
                 break;
             case '&':
-                if (peekChar() == '&') {
-                    advanceChar();
-                    token = new Token(TokenType.AND, "&&", line, column);
-                    advanceChar();
-                } else {
-                    reportError(line, column, "Expected '&' after '&'");
+                if (peekChar() != '&') {
+                    reportError(start, start + 1, "Expected '&' after '&'");
                     advanceChar();
+                    return;
                 }
+                type = TokenType.AND;
+                tokenLength = 2;
                 break;
             case '|':
-                if (peekChar() == '|') {
-                    advanceChar();
-                    token = new Token(TokenType.OR, "||", line, column);
-                    advanceChar();
-                } else {
-                    reportError(line, column, "Expected '|' after '|'");
+                if (peekChar() != '|') {
+                    reportError(start, start + 1, "Expected '|' after '|'");
                     advanceChar();
+                    return;
                 }
+                type = TokenType.OR;
+                tokenLength = 2;
                 break;
             case '(':
-                token = new Token(TokenType.LPAREN, "(", line, column);
-                advanceChar();
+                type = TokenType.LPAREN;
                 break;
             case ')':
-                token = new Token(TokenType.RPAREN, ")", line, column);
-                advanceChar();
+                type = TokenType.RPAREN;
                 break;
             case '{':
-                token = new Token(TokenType.LBRACE, "{", line, column);
-                tokens.add(token);
-                advanceChar();
-                // Handle scope entry in the symbol table
-                handleSymbolTableEntry(token);
-                return;  // Already added token and handled symbol table
+                type = TokenType.LBRACE;
+                break;
             case '}':
-                token = new Token(TokenType.RBRACE, "}", line, column);
-                tokens.add(token);
-                advanceChar();
-                // Handle scope exit in the symbol table
-                handleSymbolTableEntry(token);
-                return;  // Already added token and handled symbol table
+                type = TokenType.RBRACE;
+                break;
             case ';':
-                token = new Token(TokenType.SEMICOLON, ";", line, column);
-                tokens.add(token);
-                advanceChar();
-                // Handle statement end in the symbol table
-                handleSymbolTableEntry(token);
-                return;  // Already added token and handled symbol table
+                type = TokenType.SEMICOLON;
+                break;
             case ',':
-                token = new Token(TokenType.COMMA, ",", line, column);
-                advanceChar();
+                type = TokenType.COMMA;
                 break;
             default:
-                reportError(line, column, "Unexpected character: " + currentChar);
-                advanceChar();
+                int end = start + charCount(source, length, start);
+                reportError(start, end, "Unexpected character: " + new String(source, start, end - start));
+                moveTo(end);
                 return;
         }
         
-        // Add token to the list if we created one
-        if (token != null) {
-            tokens.add(token);
-        }
+        moveTo(start + tokenLength);
+        tokens.add(type, start, tokenLength, typeLexemeIds[type.ordinal()]);
+        lastToken.moveTo(tokens.size() - 1);
+        
+        // Braces open and close scopes, a semicolon ends a declaration
+        handleSymbolTableEntry(lastToken);
     }
     
-    // Error reporting (unchanged from your original)
-    private void reportError(int line, int column, String message) {
+    // Error reporting for the source range [start, end)
+    private void reportError(int start, int end, String message) {
         hasError = true;
-        String error = String.format("Lexical error at line %d, column %d: %s", line, column, message);
+        String error = String.format("Lexical error at line %d, column %d: %s",
+                lines.lineOf(start), lines.columnOf(start), message);
         errors.add(error);
-        tokens.add(new Token(TokenType.ERROR, message, line, column));
+        tokens.addError(message, start, end - start);
     }
     
     public List<String> getErrors() {
@@ -0,0 +1,179 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Maps character offsets in a source to 1-based line and column numbers.
+// The start offset of every line is kept in one int[]; a position is
+// resolved by binary search over it. Line breaks are \n, \r\n and a lone \r.
+//
+// Offsets are indexed lazily: the first lookup at or past an offset scans
+// forward to it, so a scanner that reports positions in order indexes each
+// character once, and positions that are never displayed cost nothing.
+//
+// The source is either a char[] or UTF-8 bytes. For bytes, offsets are byte
+// offsets and columns count the chars the bytes decode to, so both kinds of
+// source report the same line and column for the same text.
+class LineIndex {
+    private char[] source;
+    private final ByteBuffer bytes;
+    private int length;
+    private int[] lineStarts;
+    private int lineCount;
+    private int indexedTo; // line breaks before this offset are recorded
+
+    LineIndex(char[] source) {
+        this(source, null, source.length);
+    }
+
+    LineIndex(ByteBuffer bytes) {
+        this(null, bytes, bytes.limit());
+    }
+
+    private LineIndex(char[] source, ByteBuffer bytes, int length) {
+        this.source = source;
+        this.bytes = bytes;
+        this.length = length;
+        this.lineStarts = new int[16];
+        this.lineStarts[0] = 0;
+        this.lineCount = 1;
+        this.indexedTo = 0;
+    }
+
+    // Record the line breaks before offset. The search for the next break
+    // runs over the char[] or the bytes directly, one loop for each.
+    private void indexTo(int offset) {
+        int end = Math.min(offset, length);
+        for (int p = nextBreak(indexedTo, end); p < end; p = nextBreak(p + 1, end)) {
+            if (unitAt(p) == '\n' || p + 1 >= length || unitAt(p + 1) != '\n') {
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                }
+                lineStarts[lineCount++] = p + 1;
+            }
+        }
+        indexedTo = Math.max(indexedTo, end);
+    }
+
+    // Offset of the first '\n' or '\r' in [from, end), or end
+    private int nextBreak(int from, int end) {
+        int p = from;
+        if (source != null) {
+            char[] chars = source;
+            while (p < end && chars[p] != '\n' && chars[p] != '\r') {
+                p++;
+            }
+        } else {
+            ByteBuffer input = bytes;
+            while (p < end) {
+                byte b = input.get(p);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                p++;
+            }
+        }
+        return p;
+    }
+
+    // Code unit at p: a char, or a byte as 0-255
+    private int unitAt(int p) {
+        return (source != null) ? source[p] : bytes.get(p) & 0xff;
+    }
+
+    // Index of the line holding offset, 0-based
+    private int lineIndexOf(int offset) {
+        indexTo(offset);
+        // Scanners ask about the line they are on, which is the last one indexed
+        if (offset >= lineStarts[lineCount - 1]) {
+            return lineCount - 1;
+        }
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // 1-based line of an offset
+    public int lineOf(int offset) {
+        return lineIndexOf(offset) + 1;
+    }
+
+    // 1-based column of an offset; a tab counts as one column
+    public int columnOf(int offset) {
+        int lineStart = lineStarts[lineIndexOf(offset)];
+        if (source != null) {
+            return offset - lineStart + 1;
+        }
+        // Count UTF-16 chars: one per character or malformed sequence (a
+        // U+FFFD), two for a 4-byte sequence (a surrogate pair)
+        int column = 1;
+        for (int p = lineStart; p < offset && p < length; ) {
+            int count = ByteScanner.sequenceLength(bytes, length, p);
+            column += (count == 4) ? 2 : 1;
+            p += Math.abs(count);
+        }
+        return column;
+    }
+
+    // Offset of a 1-based line and column, the inverse of lineOf and
+    // columnOf; positions past the end of a line or the source are clamped
+    // to the line's terminator (its '\r' or '\n') or the end of the source
+    public int offsetOf(int line, int column) {
+        if (line >= lineCount) {
+            indexTo(length); // the start of the next line bounds the column
+        }
+        line = Math.max(Math.min(line, lineCount), 1);
+        int lineStart = lineStarts[line - 1];
+        int lineEnd = length;
+        if (line < lineCount) {
+            lineEnd = lineStarts[line] - 1;
+            if (unitAt(lineEnd) == '\n' && lineEnd > lineStart && unitAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+        }
+        if (source != null) {
+            return Math.max(lineStart, Math.min(lineStart + column - 1, lineEnd));
+        }
+        // Step over whole UTF-8 sequences, counting as columnOf does
+        int p = lineStart;
+        for (int c = 1; c < column && p < lineEnd; ) {
+            int count = ByteScanner.sequenceLength(bytes, length, p);
+            c += (count == 4) ? 2 : 1;
+            p += Math.abs(count);
+        }
+        return p;
+    }
+
+    // The char source was edited at offset and is now source[0, length):
+    // forget the line breaks from just before offset on (a '\r' there may
+    // have become half of a "\r\n"), to be indexed again on demand
+    void edit(char[] source, int length, int offset) {
+        this.source = source;
+        this.length = length;
+        int from = Math.max(offset - 1, 0);
+        int low = 1;
+        int high = lineCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lineStarts[mid] <= from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        lineCount = low;
+        indexedTo = Math.min(indexedTo, from);
+    }
+
+    // Number of lines in the whole source
+    public int getLineCount() {
+        indexTo(length);
+        return lineCount;
+    }
+}
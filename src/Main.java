@@ -6,7 +6,8 @@ import java.util.Map;
 
 public class Main {
     public static void main(String[] args) {
-        String filePath = "src/Test.iq";
+        // Many files at once: see BatchLexer
+        String filePath = (args.length > 0) ? args[0] : "src/Test.iq";
         if (!filePath.endsWith(".iq")) {
             System.err.println("Error: The source file must have a .iq extension.");
             return;
@@ -21,7 +22,7 @@ public class Main {
         System.out.println("=== Source Code from " + filePath + " ===");
         System.out.println(sourceCode);
         System.out.println("===========================================");
-        LexicalAnalyser lexer = new LexicalAnalyser(sourceCode);
+        LexicalAnalyser lexer = new LexicalAnalyser(sourceCode, ScanMode.forCommandLine());
         List<Token> tokens = lexer.tokenize();
         
         System.out.println("Tokens found: " + tokens.size());
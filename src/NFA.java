@@ -1,25 +1,35 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class NFA {
     private State startState;
     private State acceptState;
     private Set<State> allStates;
-    private int stateIdCounter;
+    private Map<State, Set<State>> closureCache;
+    private int closureCacheEdits; // State.getEpsilonEdits() when closureCache was built
+
+    // State ids are shared by every NFA so that combining independently built
+    // NFAs never merges two distinct states that happen to have the same id
+    private static final AtomicInteger nextStateId = new AtomicInteger();
 
     public NFA() {
         this.allStates = new HashSet<>();
-        this.stateIdCounter = 0;
     }
 
     public State createState() {
-        State newState = new State(stateIdCounter++);
+        State newState = new State(nextStateId.getAndIncrement());
         allStates.add(newState);
+        invalidateClosures();
         return newState;
     }
 
@@ -61,6 +71,64 @@ public class NFA {
         return nfa;
     }
 
+    // Single-edge-per-range NFA for a character class: one range transition
+    // for each [lows[i], highs[i]] instead of a union per character
+    public static NFA fromRanges(char[] lows, char[] highs) {
+        NFA nfa = new NFA();
+        State start = nfa.createState();
+        State accept = nfa.createState();
+        accept.setAccepting(true);
+        
+        for (int i = 0; i < lows.length; i++) {
+            if (lows[i] == highs[i]) {
+                start.addTransition(lows[i], accept);
+            } else {
+                start.addRangeTransition(lows[i], highs[i], accept);
+            }
+        }
+        
+        nfa.setStartState(start);
+        nfa.setAcceptState(accept);
+        return nfa;
+    }
+
+    // NFA accepting only the empty string
+    public static NFA fromEpsilon() {
+        NFA nfa = new NFA();
+        State start = nfa.createState();
+        State accept = nfa.createState();
+        accept.setAccepting(true);
+        
+        start.addEpsilonTransition(accept);
+        
+        nfa.setStartState(start);
+        nfa.setAcceptState(accept);
+        return nfa;
+    }
+
+    // Thompson NFA for a regular expression; see RegexParser for the syntax
+    public static NFA compile(String pattern) {
+        return RegexParser.compile(pattern);
+    }
+
+    // Concatenation of the characters of a literal string
+    public static NFA fromString(String literal) {
+        NFA result = fromSymbol(literal.charAt(0));
+        for (int i = 1; i < literal.length(); i++) {
+            result = concatenate(result, fromSymbol(literal.charAt(i)));
+        }
+        return result;
+    }
+
+    // Union of single characters, i.e. a character class
+    public static NFA fromAnyOf(String symbols) {
+        NFA result = fromSymbol(symbols.charAt(0));
+        for (int i = 1; i < symbols.length(); i++) {
+            result = union(result, fromSymbol(symbols.charAt(i)));
+        }
+        return result;
+    }
+
     // Thompson's Construction for concatenation
     public static NFA concatenate(NFA first, NFA second) {
         // Connect first's accept state to second's start state
@@ -71,7 +139,6 @@ public class NFA {
         NFA result = new NFA();
         result.allStates.addAll(first.getAllStates());
         result.allStates.addAll(second.getAllStates());
-        result.stateIdCounter = Math.max(first.stateIdCounter, second.stateIdCounter);
         
         // Set start and accept states
         result.setStartState(first.getStartState());
@@ -104,7 +171,6 @@ public class NFA {
         // Combine all states
         result.allStates.addAll(first.getAllStates());
         result.allStates.addAll(second.getAllStates());
-        result.stateIdCounter = Math.max(Math.max(first.stateIdCounter, second.stateIdCounter), result.stateIdCounter);
         
         // Set start and accept states
         result.setStartState(newStart);
@@ -133,7 +199,6 @@ public class NFA {
         
         // Combine all states
         result.allStates.addAll(nfa.getAllStates());
-        result.stateIdCounter = Math.max(nfa.stateIdCounter, result.stateIdCounter);
         
         // Set start and accept states
         result.setStartState(newStart);
@@ -142,10 +207,52 @@ public class NFA {
         return result;
     }
 
-    // Get epsilon closure of a state
-    private Set<State> getEpsilonClosure(State state) {
+    // Frozen CSR copy of this NFA for simulation and DFA construction; call
+    // once the Thompson combinators are done with it
+    public FrozenNFA freeze() {
+        return new FrozenNFA(this);
+    }
+
+    // Get epsilon closure of a state. Closures come from a per-NFA cache, so
+    // the returned set is shared and read-only.
+    public Set<State> getEpsilonClosure(State state) {
+        Set<State> closure = getClosureCache().get(state);
+        return (closure != null) ? closure : Collections.unmodifiableSet(computeEpsilonClosure(state));
+    }
+
+    // Get epsilon closure of a set of states
+    public Set<State> getEpsilonClosure(Set<State> states) {
         Set<State> closure = new HashSet<>();
-        Stack<State> stack = new Stack<>();
+        
+        for (State state : states) {
+            closure.addAll(getEpsilonClosure(state));
+        }
+        
+        return closure;
+    }
+
+    // Drop cached closures; called when a state joins this NFA
+    private void invalidateClosures() {
+        closureCache = null;
+    }
+
+    // The cached closures, rebuilt if a state joined this NFA or an epsilon
+    // edge was added anywhere since they were computed. The combinators add
+    // edges to states that earlier NFAs built from the same operands still
+    // hold, so the check is on the global edit count, not on this NFA.
+    private Map<State, Set<State>> getClosureCache() {
+        int edits = State.getEpsilonEdits();
+        if (closureCache == null || closureCacheEdits != edits) {
+            closureCache = computeAllClosures();
+            closureCacheEdits = edits;
+        }
+        return closureCache;
+    }
+
+    // Closure of a state outside this NFA, by a plain depth-first search
+    private Set<State> computeEpsilonClosure(State state) {
+        Set<State> closure = new HashSet<>();
+        Deque<State> stack = new ArrayDeque<>();
         
         stack.push(state);
         closure.add(state);
@@ -153,8 +260,7 @@ public class NFA {
         while (!stack.isEmpty()) {
             State current = stack.pop();
             for (State nextState : current.getEpsilonTransitions()) {
-                if (!closure.contains(nextState)) {
-                    closure.add(nextState);
+                if (closure.add(nextState)) {
                     stack.push(nextState);
                 }
             }
@@ -163,15 +269,115 @@ public class NFA {
         return closure;
     }
 
-    // Get epsilon closure of a set of states
-    public Set<State> getEpsilonClosure(Set<State> states) {
-        Set<State> closure = new HashSet<>();
-        
+    // Closures of all states at once. Tarjan's algorithm finds the strongly
+    // connected components of the epsilon graph (the cycles kleeneStar
+    // creates) in reverse topological order, so every component's closure is
+    // its own members plus the already finished closures of its successors,
+    // and all members of a component share one closure set.
+    private Map<State, Set<State>> computeAllClosures() {
+        List<State> states = new ArrayList<>(allStates);
+        Map<State, Integer> index = new HashMap<>(states.size() * 2);
         for (State state : states) {
-            closure.addAll(getEpsilonClosure(state));
+            index.put(state, index.size());
         }
+        // Epsilon targets outside allStates are appended and visited too
+        List<int[]> edgeList = new ArrayList<>();
+        for (int i = 0; i < states.size(); i++) {
+            Set<State> targets = states.get(i).getEpsilonTransitions();
+            int[] edges = new int[targets.size()];
+            int e = 0;
+            for (State target : targets) {
+                Integer targetIndex = index.get(target);
+                if (targetIndex == null) {
+                    targetIndex = index.size();
+                    index.put(target, targetIndex);
+                    states.add(target);
+                }
+                edges[e++] = targetIndex;
+            }
+            edgeList.add(edges);
+        }
+        int n = states.size();
         
-        return closure;
+        int[] order = new int[n];
+        int[] lowLink = new int[n];
+        int[] component = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(order, -1);
+        int[] sccStack = new int[n];
+        int sccTop = 0;
+        int[] callStack = new int[n];
+        int[] edgePosition = new int[n];
+        int callTop = 0;
+        int counter = 0;
+        int componentCount = 0;
+        List<Set<State>> closures = new ArrayList<>();
+        Map<State, Set<State>> cache = new HashMap<>(n * 2);
+        
+        for (int root = 0; root < n; root++) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            order[root] = lowLink[root] = counter++;
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+            callStack[callTop] = root;
+            edgePosition[callTop++] = 0;
+            
+            while (callTop > 0) {
+                int v = callStack[callTop - 1];
+                int[] edges = edgeList.get(v);
+                if (edgePosition[callTop - 1] < edges.length) {
+                    int w = edges[edgePosition[callTop - 1]++];
+                    if (order[w] < 0) {
+                        order[w] = lowLink[w] = counter++;
+                        sccStack[sccTop++] = w;
+                        onStack[w] = true;
+                        callStack[callTop] = w;
+                        edgePosition[callTop++] = 0;
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], order[w]);
+                    }
+                    continue;
+                }
+                
+                callTop--;
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                }
+                if (lowLink[v] != order[v]) {
+                    continue;
+                }
+                
+                // v is the root of a component: pop it and build its closure
+                Set<State> closure = new HashSet<>();
+                int componentStart = sccTop;
+                do {
+                    int member = sccStack[--componentStart];
+                    onStack[member] = false;
+                    component[member] = componentCount;
+                    closure.add(states.get(member));
+                } while (sccStack[componentStart] != v);
+                for (int k = componentStart; k < sccTop; k++) {
+                    int member = sccStack[k];
+                    for (int w : edgeList.get(member)) {
+                        if (component[w] != componentCount) {
+                            closure.addAll(closures.get(component[w]));
+                        }
+                    }
+                }
+                Set<State> shared = Collections.unmodifiableSet(closure);
+                closures.add(shared);
+                for (int k = componentStart; k < sccTop; k++) {
+                    cache.put(states.get(sccStack[k]), shared);
+                }
+                sccTop = componentStart;
+                componentCount++;
+            }
+        }
+        
+        return cache;
     }
 
     // Helper method to get moves from a set of states on a specific symbol
@@ -203,7 +409,7 @@ public class NFA {
         for (char symbol : sortedSymbols) {
             System.out.print("| " + symbol + "\t");
         }
-        System.out.println("| Accepting");
+        System.out.println("| Ranges\t| Accepting");
         System.out.println("-".repeat(80));
         
         // Sort states by ID for cleaner display
@@ -240,6 +446,18 @@ public class NFA {
                 }
             }
             
+            // Print range transitions
+            if (state.getRangeTransitions().isEmpty()) {
+                System.out.print("| -\t");
+            } else {
+                StringBuilder sb = new StringBuilder("| ");
+                for (State.RangeTransition range : state.getRangeTransitions()) {
+                    sb.append("[").append(range.getLow()).append("-").append(range.getHigh()).append("]q")
+                            .append(range.getTarget().getId()).append(",");
+                }
+                System.out.print(sb.substring(0, sb.length() - 1) + "\t");
+            }
+            
             // Print accepting status
             System.out.println("| " + (state.isAccepting() ? "Yes" : "No"));
         }
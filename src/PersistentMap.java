@@ -0,0 +1,279 @@
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+// Immutable hash map with structural sharing: a hash array mapped trie.
+// Each level of the trie consumes 5 bits of the key's hash and holds only
+// the slots in use, found through a 32-bit bitmap. put and remove copy the
+// path from the root to the changed entry, at most seven small nodes, and
+// share everything else with the map they started from, so keeping old
+// versions alive costs only what changed since.
+//
+// Keys whose hashes agree on all 32 bits end up together in a collision
+// node at the bottom. Instances can be shared between threads freely.
+final class PersistentMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    // Slots come in pairs: (key, value) for an entry, (null, child) for a
+    // deeper node; they are ordered by bit position
+    private static final class BitmapNode {
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    // Entries whose keys have the same full hash
+    private static final class CollisionNode {
+        final int hash;
+        final Object[] slots; // key, value, key, value ...
+
+        CollisionNode(int hash, Object[] slots) {
+            this.hash = hash;
+            this.slots = slots;
+        }
+    }
+
+    private final Object root; // BitmapNode, or null when empty
+    private final int size;
+
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Value of key, or null
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        int hash = hashOf(key);
+        Object node = root;
+        for (int shift = 0; node != null; shift += BITS) {
+            if (node instanceof CollisionNode) {
+                CollisionNode collision = (CollisionNode) node;
+                int i = indexIn(collision, key);
+                return (i >= 0) ? (V) collision.slots[i + 1] : null;
+            }
+            BitmapNode bitmapNode = (BitmapNode) node;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmapNode.bitmap & bit) == 0) {
+                return null;
+            }
+            int i = 2 * Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+            Object slotKey = bitmapNode.slots[i];
+            if (slotKey != null) {
+                return slotKey.equals(key) ? (V) bitmapNode.slots[i + 1] : null;
+            }
+            node = bitmapNode.slots[i + 1];
+        }
+        return null;
+    }
+
+    // This map with key mapped to value (which must not be null)
+    PersistentMap<K, V> put(K key, V value) {
+        int hash = hashOf(key);
+        boolean[] added = new boolean[1];
+        Object newRoot = (root == null)
+                ? new BitmapNode(1 << (hash & MASK), new Object[] { key, value })
+                : put(root, 0, hash, key, value, added);
+        if (root == null) {
+            added[0] = true;
+        }
+        return (newRoot == root) ? this : new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    // This map without key
+    PersistentMap<K, V> remove(K key) {
+        if (root == null) {
+            return this;
+        }
+        Object newRoot = remove(root, 0, hashOf(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        if (newRoot != null && !(newRoot instanceof BitmapNode)) {
+            // A lone entry lifted out of the root: give it its own root node
+            Object[] entry = (Object[]) newRoot;
+            newRoot = new BitmapNode(1 << (hashOf(entry[0]) & MASK), entry);
+        }
+        return new PersistentMap<>(newRoot, size - 1);
+    }
+
+    // Call action for every entry, in no particular order
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<K, V> action) {
+        forEach(root, (BiConsumer<Object, Object>) action);
+    }
+
+    private static void forEach(Object node, BiConsumer<Object, Object> action) {
+        if (node == null) {
+            return;
+        }
+        Object[] slots = (node instanceof CollisionNode) ? ((CollisionNode) node).slots : ((BitmapNode) node).slots;
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != null) {
+                action.accept(slots[i], slots[i + 1]);
+            } else {
+                forEach(slots[i + 1], action);
+            }
+        }
+    }
+
+    private static Object put(Object node, int shift, int hash, Object key, Object value, boolean[] added) {
+        if (node instanceof CollisionNode) {
+            CollisionNode collision = (CollisionNode) node;
+            int i = indexIn(collision, key);
+            if (i >= 0) {
+                if (collision.slots[i + 1] == value) {
+                    return node;
+                }
+                Object[] slots = collision.slots.clone();
+                slots[i + 1] = value;
+                return new CollisionNode(hash, slots);
+            }
+            Object[] slots = Arrays.copyOf(collision.slots, collision.slots.length + 2);
+            slots[slots.length - 2] = key;
+            slots[slots.length - 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, slots);
+        }
+
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int i = 2 * Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+        if ((bitmapNode.bitmap & bit) == 0) {
+            Object[] slots = new Object[bitmapNode.slots.length + 2];
+            System.arraycopy(bitmapNode.slots, 0, slots, 0, i);
+            slots[i] = key;
+            slots[i + 1] = value;
+            System.arraycopy(bitmapNode.slots, i, slots, i + 2, bitmapNode.slots.length - i);
+            added[0] = true;
+            return new BitmapNode(bitmapNode.bitmap | bit, slots);
+        }
+
+        Object slotKey = bitmapNode.slots[i];
+        Object slotValue = bitmapNode.slots[i + 1];
+        Object replacement;
+        if (slotKey == null) {
+            replacement = put(slotValue, shift + BITS, hash, key, value, added);
+            if (replacement == slotValue) {
+                return node;
+            }
+            return withSlot(bitmapNode, i, null, replacement);
+        }
+        if (slotKey.equals(key)) {
+            return (slotValue == value) ? node : withSlot(bitmapNode, i, key, value);
+        }
+        added[0] = true;
+        replacement = pair(shift + BITS, hashOf(slotKey), slotKey, slotValue, hash, key, value);
+        return withSlot(bitmapNode, i, null, replacement);
+    }
+
+    // Node at shift holding two entries with different keys
+    private static Object pair(int shift, int hash1, Object key1, Object value1,
+                               int hash2, Object key2, Object value2) {
+        if (shift >= Integer.SIZE) {
+            return new CollisionNode(hash1, new Object[] { key1, value1, key2, value2 });
+        }
+        int bit1 = 1 << ((hash1 >>> shift) & MASK);
+        int bit2 = 1 << ((hash2 >>> shift) & MASK);
+        if (bit1 == bit2) {
+            return new BitmapNode(bit1,
+                    new Object[] { null, pair(shift + BITS, hash1, key1, value1, hash2, key2, value2) });
+        }
+        Object[] slots = (Integer.compareUnsigned(bit1, bit2) < 0)
+                ? new Object[] { key1, value1, key2, value2 }
+                : new Object[] { key2, value2, key1, value1 };
+        return new BitmapNode(bit1 | bit2, slots);
+    }
+
+    // Node without key: the same node if key is absent, null if it becomes
+    // empty, or a bare { key, value } array when a single entry is left, for
+    // the parent to hold directly
+    private static Object remove(Object node, int shift, int hash, Object key) {
+        if (node instanceof CollisionNode) {
+            CollisionNode collision = (CollisionNode) node;
+            int i = indexIn(collision, key);
+            if (i < 0) {
+                return node;
+            }
+            Object[] slots = new Object[collision.slots.length - 2];
+            System.arraycopy(collision.slots, 0, slots, 0, i);
+            System.arraycopy(collision.slots, i + 2, slots, i, slots.length - i);
+            return (slots.length == 2) ? slots : new CollisionNode(hash, slots);
+        }
+
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        if ((bitmapNode.bitmap & bit) == 0) {
+            return node;
+        }
+        int i = 2 * Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+        Object slotKey = bitmapNode.slots[i];
+        Object slotValue = bitmapNode.slots[i + 1];
+        if (slotKey == null) {
+            Object child = remove(slotValue, shift + BITS, hash, key);
+            if (child == slotValue) {
+                return node;
+            }
+            if (child instanceof Object[]) {
+                Object[] entry = (Object[]) child;
+                return lone(withSlot(bitmapNode, i, entry[0], entry[1]));
+            }
+            if (child != null) {
+                return withSlot(bitmapNode, i, null, child);
+            }
+        } else if (!slotKey.equals(key)) {
+            return node;
+        }
+        if (bitmapNode.slots.length == 2) {
+            return null;
+        }
+        Object[] slots = new Object[bitmapNode.slots.length - 2];
+        System.arraycopy(bitmapNode.slots, 0, slots, 0, i);
+        System.arraycopy(bitmapNode.slots, i + 2, slots, i, slots.length - i);
+        return lone(new BitmapNode(bitmapNode.bitmap & ~bit, slots));
+    }
+
+    // A node left with one entry and no children collapses into its parent
+    private static Object lone(BitmapNode node) {
+        if (node.slots.length == 2 && node.slots[0] != null) {
+            return node.slots;
+        }
+        return node;
+    }
+
+    private static BitmapNode withSlot(BitmapNode node, int i, Object key, Object value) {
+        Object[] slots = node.slots.clone();
+        slots[i] = key;
+        slots[i + 1] = value;
+        return new BitmapNode(node.bitmap, slots);
+    }
+
+    private static int indexIn(CollisionNode node, Object key) {
+        for (int i = 0; i < node.slots.length; i += 2) {
+            if (node.slots[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Spread the high bits down so the first levels see all of the hash
+    private static int hashOf(Object key) {
+        int hash = key.hashCode() * 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+}
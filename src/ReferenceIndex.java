@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+// Every resolved identifier reference of a source, as DeclarationTracker
+// found it: the id of the symbol it resolved to (its declaration index in
+// the ScopeTree) and the offset of the identifier. The pairs are kept in
+// two int arrays in source order, which is already the use-to-definition
+// index: reference r is at offsets[r] and refers to symbol symbolIds[r].
+//
+// The definition-to-uses index is built on the first query, in compressed
+// rows: the references to symbol s are uses[useRows[s], useRows[s + 1]),
+// in source order. Both directions then cost O(1) to locate, plus a binary
+// search when starting from an offset. Memory is twelve bytes per
+// reference and four per symbol.
+public class ReferenceIndex {
+    private final ScopeTree scopeTree;
+    private int[] symbolIds;
+    private int[] offsets;
+    private int count;
+
+    // Built on the first query after a change
+    private int[] useRows;
+    private int[] uses;            // reference indexes grouped by symbol
+
+    ReferenceIndex(ScopeTree scopeTree) {
+        this.scopeTree = scopeTree;
+        this.symbolIds = new int[64];
+        this.offsets = new int[64];
+    }
+
+    // The identifier at offset resolved to symbol; references to symbols
+    // declared outside this source (another file's globals, which only
+    // have an id in that file's scope tree) are dropped
+    void record(Symbol symbol, int offset) {
+        int id = scopeTree.idOf(symbol);
+        if (id < 0) {
+            return;
+        }
+        if (count == offsets.length) {
+            symbolIds = Arrays.copyOf(symbolIds, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        symbolIds[count] = id;
+        offsets[count++] = offset;
+        useRows = null;
+    }
+
+    public int getReferenceCount() {
+        return count;
+    }
+
+    // Offset of the identifier making reference r
+    public int getOffset(int reference) {
+        return offsets[reference];
+    }
+
+    // Go to definition: the symbol reference r resolved to
+    public Symbol getDefinition(int reference) {
+        return scopeTree.getSymbol(symbolIds[reference]);
+    }
+
+    // Go to definition from an offset inside an identifier: the symbol it
+    // refers to or declares, or null
+    public Symbol definitionAt(int offset) {
+        int r = ScopeTree.lastAtOrBefore(offsets, count, offset);
+        if (r >= 0 && offset < offsets[r] + getDefinition(r).getName().length()) {
+            return getDefinition(r);
+        }
+        int id = scopeTree.declarationAt(offset);
+        return (id >= 0) ? scopeTree.getSymbol(id) : null;
+    }
+
+    // Number of references to a symbol
+    public int getUseCount(Symbol symbol) {
+        buildUses();
+        int id = scopeTree.idOf(symbol);
+        return (id >= 0) ? useRows[id + 1] - useRows[id] : 0;
+    }
+
+    // Find references: offsets of the identifiers referring to a symbol, in
+    // source order
+    public int[] getUseOffsets(Symbol symbol) {
+        buildUses();
+        int id = scopeTree.idOf(symbol);
+        if (id < 0) {
+            return new int[0];
+        }
+        int[] useOffsets = new int[useRows[id + 1] - useRows[id]];
+        for (int i = 0; i < useOffsets.length; i++) {
+            useOffsets[i] = offsets[uses[useRows[id] + i]];
+        }
+        return useOffsets;
+    }
+
+    // Counting sort of the references by symbol; stable, so rows stay in source order
+    private void buildUses() {
+        if (useRows != null) {
+            return;
+        }
+        int symbolCount = scopeTree.getSymbolCount();
+        int[] rows = new int[symbolCount + 1];
+        for (int r = 0; r < count; r++) {
+            rows[symbolIds[r] + 1]++;
+        }
+        for (int s = 0; s < symbolCount; s++) {
+            rows[s + 1] += rows[s];
+        }
+        uses = new int[count];
+        int[] fill = Arrays.copyOf(rows, symbolCount);
+        for (int r = 0; r < count; r++) {
+            uses[fill[symbolIds[r]]++] = r;
+        }
+        useRows = rows;
+    }
+}
@@ -0,0 +1,333 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Recursive-descent parser for the patterns accepted by NFA.compile:
+//
+//   ab  a|b  (ab)        concatenation, alternation, grouping
+//   a*  a+  a?           repetition
+//   a{m}  a{m,}  a{m,n}  bounded repetition
+//   [a-z_]  [^'\\]       character classes, ranges and negated classes
+//   .                    any character except a newline
+//   \n \t \r \f \0       control characters
+//   \d \s \w \D \S \W    digit, whitespace and word classes
+//   \x                   any other escaped character stands for itself
+//
+// The pattern is parsed into a small syntax tree first. Thompson NFAs are
+// consumed when combined, so repetitions need several fresh copies of their
+// operand, which the tree can build as often as needed.
+class RegexParser {
+    private static final String METACHARACTERS = "\\|()[]{}*+?.";
+
+    // Syntax tree node; build() returns a fresh Thompson NFA each call
+    private interface Node {
+        NFA build();
+    }
+
+    private final String pattern;
+    private int position;
+
+    private RegexParser(String pattern) {
+        this.pattern = pattern;
+        this.position = 0;
+    }
+
+    public static NFA compile(String pattern) {
+        RegexParser parser = new RegexParser(pattern);
+        Node root = parser.parseAlternation();
+        if (parser.position < pattern.length()) {
+            throw parser.error("unexpected '" + pattern.charAt(parser.position) + "'");
+        }
+        return root.build();
+    }
+
+    // Escape every metacharacter so the pattern matches the literal text
+    public static String quote(String literal) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (METACHARACTERS.indexOf(c) >= 0) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // alternation := concatenation ('|' concatenation)*
+    private Node parseAlternation() {
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(parseConcatenation());
+        while (peek('|')) {
+            position++;
+            alternatives.add(parseConcatenation());
+        }
+        if (alternatives.size() == 1) {
+            return alternatives.get(0);
+        }
+        return () -> {
+            NFA result = alternatives.get(0).build();
+            for (int i = 1; i < alternatives.size(); i++) {
+                result = NFA.union(result, alternatives.get(i).build());
+            }
+            return result;
+        };
+    }
+
+    // concatenation := repetition*
+    private Node parseConcatenation() {
+        List<Node> parts = new ArrayList<>();
+        while (position < pattern.length() && !peek('|') && !peek(')')) {
+            parts.add(parseRepetition());
+        }
+        if (parts.isEmpty()) {
+            return NFA::fromEpsilon;
+        }
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        return () -> {
+            NFA result = parts.get(0).build();
+            for (int i = 1; i < parts.size(); i++) {
+                result = NFA.concatenate(result, parts.get(i).build());
+            }
+            return result;
+        };
+    }
+
+    // repetition := atom ('*' | '+' | '?' | '{' m (',' n?)? '}')*
+    private Node parseRepetition() {
+        Node node = parseAtom();
+        while (position < pattern.length()) {
+            char c = pattern.charAt(position);
+            if (c == '*') {
+                position++;
+                node = repeat(node, 0, -1);
+            } else if (c == '+') {
+                position++;
+                node = repeat(node, 1, -1);
+            } else if (c == '?') {
+                position++;
+                node = repeat(node, 0, 1);
+            } else if (c == '{') {
+                position++;
+                int min = parseNumber();
+                int max = min;
+                if (peek(',')) {
+                    position++;
+                    max = peek('}') ? -1 : parseNumber();
+                }
+                expect('}');
+                if (max >= 0 && max < min) {
+                    throw error("repetition {" + min + "," + max + "} has max below min");
+                }
+                node = repeat(node, min, max);
+            } else {
+                break;
+            }
+        }
+        return node;
+    }
+
+    // min mandatory copies, then either a Kleene star (max == -1) or
+    // max - min optional copies
+    private static Node repeat(Node operand, int min, int max) {
+        return () -> {
+            NFA result = null;
+            for (int i = 0; i < min; i++) {
+                result = append(result, operand.build());
+            }
+            if (max < 0) {
+                result = append(result, NFA.kleeneStar(operand.build()));
+            } else {
+                for (int i = min; i < max; i++) {
+                    result = append(result, NFA.union(operand.build(), NFA.fromEpsilon()));
+                }
+            }
+            return (result != null) ? result : NFA.fromEpsilon();
+        };
+    }
+
+    private static NFA append(NFA first, NFA second) {
+        return (first == null) ? second : NFA.concatenate(first, second);
+    }
+
+    // atom := '(' alternation ')' | '[' class ']' | '.' | '\' escape | character
+    private Node parseAtom() {
+        char c = pattern.charAt(position++);
+        switch (c) {
+            case '(': {
+                Node inner = parseAlternation();
+                expect(')');
+                return inner;
+            }
+            case '[':
+                return rangesNode(parseClass());
+            case '.':
+                return rangesNode(negate(new char[] {'\n', '\n'}));
+            case '\\':
+                return rangesNode(parseEscape());
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw error("nothing to repeat before '" + c + "'");
+            case ')':
+                throw error("unbalanced ')'");
+            default:
+                return () -> NFA.fromSymbol(c);
+        }
+    }
+
+    // class := '^'? (item ('-' item)?)+ ']'  with a leading ']' taken literally
+    private char[] parseClass() {
+        boolean negated = peek('^');
+        if (negated) {
+            position++;
+        }
+        List<char[]> items = new ArrayList<>();
+        boolean first = true;
+        while (position < pattern.length() && (first || !peek(']'))) {
+            first = false;
+            char c = pattern.charAt(position++);
+            if (c == '\\') {
+                char[] escaped = parseEscape();
+                if (escaped.length > 2 || escaped[0] != escaped[1]) {
+                    items.add(escaped);
+                    continue;
+                }
+                c = escaped[0];
+            }
+            char high = c;
+            if (peek('-') && position + 1 < pattern.length() && pattern.charAt(position + 1) != ']') {
+                position++;
+                high = pattern.charAt(position++);
+                if (high == '\\') {
+                    char[] escaped = parseEscape();
+                    if (escaped.length > 2 || escaped[0] != escaped[1]) {
+                        throw error("class escape cannot end a range");
+                    }
+                    high = escaped[0];
+                }
+                if (high < c) {
+                    throw error("range " + c + "-" + high + " is out of order");
+                }
+            }
+            items.add(new char[] {c, high});
+        }
+        expect(']');
+        char[] ranges = normalize(items);
+        return negated ? negate(ranges) : ranges;
+    }
+
+    // Escape after a backslash, as a list of ranges [low0, high0, low1, high1, ...]
+    private char[] parseEscape() {
+        if (position >= pattern.length()) {
+            throw error("dangling '\\'");
+        }
+        char c = pattern.charAt(position++);
+        switch (c) {
+            case 'n': return new char[] {'\n', '\n'};
+            case 't': return new char[] {'\t', '\t'};
+            case 'r': return new char[] {'\r', '\r'};
+            case 'f': return new char[] {'\f', '\f'};
+            case '0': return new char[] {'\0', '\0'};
+            case 'd': return digits();
+            case 'D': return negate(digits());
+            case 's': return whitespace();
+            case 'S': return negate(whitespace());
+            case 'w': return word();
+            case 'W': return negate(word());
+            default: return new char[] {c, c};
+        }
+    }
+
+    private static char[] digits() {
+        return new char[] {'0', '9'};
+    }
+
+    private static char[] whitespace() {
+        return new char[] {'\t', '\r', ' ', ' '};
+    }
+
+    private static char[] word() {
+        return new char[] {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+    }
+
+    // Sort and merge ranges so that they are disjoint and non-adjacent
+    private static char[] normalize(List<char[]> items) {
+        List<int[]> ranges = new ArrayList<>();
+        for (char[] item : items) {
+            for (int i = 0; i < item.length; i += 2) {
+                ranges.add(new int[] {item[i], item[i + 1]});
+            }
+        }
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] range : ranges) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        char[] result = new char[merged.size() * 2];
+        for (int i = 0; i < merged.size(); i++) {
+            result[2 * i] = (char) merged.get(i)[0];
+            result[2 * i + 1] = (char) merged.get(i)[1];
+        }
+        return result;
+    }
+
+    // Complement of normalized ranges within the whole char space
+    private static char[] negate(char[] ranges) {
+        List<char[]> complement = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                complement.add(new char[] {(char) next, (char) (ranges[i] - 1)});
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            complement.add(new char[] {(char) next, Character.MAX_VALUE});
+        }
+        return normalize(complement);
+    }
+
+    private static Node rangesNode(char[] ranges) {
+        char[] lows = new char[ranges.length / 2];
+        char[] highs = new char[ranges.length / 2];
+        for (int i = 0; i < lows.length; i++) {
+            lows[i] = ranges[2 * i];
+            highs[i] = ranges[2 * i + 1];
+        }
+        return () -> NFA.fromRanges(lows, highs);
+    }
+
+    private int parseNumber() {
+        int start = position;
+        while (position < pattern.length() && Character.isDigit(pattern.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error("expected a number");
+        }
+        return Integer.parseInt(pattern.substring(start, position));
+    }
+
+    private boolean peek(char c) {
+        return position < pattern.length() && pattern.charAt(position) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) {
+            throw error("expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid pattern \"" + pattern + "\" at index " + position + ": " + message);
+    }
+}
@@ -0,0 +1,15 @@
+// Scanning strategy used by LexicalAnalyser.tokenize()
+enum ScanMode {
+    HAND_WRITTEN,   // character-by-character dispatch through the scan* methods
+    TABLE_DRIVEN,   // maximal munch over the flattened DFA of LexerRules
+    LAZY_DFA,       // maximal munch over a DFA determinized on demand from the NFA of LexerRules
+    GENERATED,      // maximal munch through GeneratedScanner, the DFA emitted as Java source
+    PARALLEL;       // TABLE_DRIVEN on chunks of the source in parallel, stitched back in order
+
+    // Mode of the command-line drivers: TABLE_DRIVEN when a precompiled
+    // table file is named with -Diq.lexer.tables, so that it is used,
+    // HAND_WRITTEN otherwise
+    static ScanMode forCommandLine() {
+        return ScannerTableFile.isConfigured() ? TABLE_DRIVEN : HAND_WRITTEN;
+    }
+}
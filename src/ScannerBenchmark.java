@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Throughput of each ScanMode on the same source. Each mode is warmed up
+// first so the JIT has compiled its scan loop, then timed over several runs.
+//
+//   java ScannerBenchmark [file.iq] [copies]
+//
+// The source is repeated `copies` times (default 2000) to make a sizeable
+// input, each copy in a block of its own: its declarations would otherwise
+// all be redeclarations of the first copy's, and formatting those errors
+// would be most of what is timed.
+// Reading from a file is timed separately: decoding it into a String for
+// LexicalAnalyser against mapping it for ByteScanner.
+public class ScannerBenchmark {
+    private static final int WARMUP_RUNS = 5;
+    private static final int TIMED_RUNS = 10;
+
+    public static void main(String[] args) throws IOException {
+        String filePath = (args.length > 0) ? args[0] : "src/Test.iq";
+        int copies = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+
+        String unit = new String(Files.readAllBytes(Paths.get(filePath)));
+        StringBuilder sb = new StringBuilder((unit.length() + 5) * copies);
+        for (int i = 0; i < copies; i++) {
+            sb.append("{\n").append(unit).append("\n}\n");
+        }
+        String sourceCode = sb.toString();
+        System.out.println("Input: " + filePath + " x " + copies + " (" + sourceCode.length() + " chars)");
+
+        for (ScanMode mode : ScanMode.values()) {
+            int tokenCount = 0;
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                tokenCount = new LexicalAnalyser(sourceCode, mode).tokenize().size();
+            }
+            long best = Long.MAX_VALUE;
+            long total = 0;
+            for (int i = 0; i < TIMED_RUNS; i++) {
+                LexicalAnalyser lexer = new LexicalAnalyser(sourceCode, mode);
+                long start = System.nanoTime();
+                lexer.tokenize();
+                long elapsed = System.nanoTime() - start;
+                best = Math.min(best, elapsed);
+                total += elapsed;
+            }
+            System.out.printf("%-13s best %8.2f ms  mean %8.2f ms  %6.1f M chars/s  %d tokens%n",
+                    mode, best / 1e6, total / 1e6 / TIMED_RUNS,
+                    sourceCode.length() / (best / 1e9) / 1e6, tokenCount);
+        }
+
+        Path file = Files.createTempFile("benchmark", ".iq");
+        try {
+            Files.write(file, sourceCode.getBytes(StandardCharsets.UTF_8));
+            timeFile("READ+DECODE", file, true);
+            timeFile("MAPPED", file, false);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Time reading and tokenizing a whole file, either decoded into a String
+    // for LexicalAnalyser or memory-mapped for ByteScanner
+    private static void timeFile(String label, Path file, boolean decode) throws IOException {
+        int tokenCount = 0;
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < WARMUP_RUNS + TIMED_RUNS; i++) {
+            long start = System.nanoTime();
+            if (decode) {
+                String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                tokenCount = new LexicalAnalyser(text, ScanMode.TABLE_DRIVEN).tokenize().size();
+            } else {
+                tokenCount = ByteScanner.map(file).tokenize().size();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP_RUNS) {
+                best = Math.min(best, elapsed);
+                total += elapsed;
+            }
+        }
+        long size = Files.size(file);
+        System.out.printf("%-13s best %8.2f ms  mean %8.2f ms  %6.1f M bytes/s  %d tokens%n",
+                label, best / 1e6, total / 1e6 / TIMED_RUNS, size / (best / 1e9) / 1e6, tokenCount);
+    }
+}
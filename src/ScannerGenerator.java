@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Build-time generator for GeneratedScanner: runs the token rules through
+// NFA -> DFA -> minimization and writes the automaton out as Java source, one
+// method per DFA state with one case label per ASCII character, so that the
+// JIT sees plain branches instead of table lookups. Characters outside ASCII
+// are tested with range comparisons.
+//
+// Regenerate after changing LexerRules or the keyword map:
+//   java ScannerGenerator [output directory]
+class ScannerGenerator {
+    static final String CLASS_NAME = "GeneratedScanner";
+
+    private final CompactDFA dfa;
+    private final StringBuilder out = new StringBuilder();
+
+    private ScannerGenerator(CompactDFA dfa) {
+        this.dfa = dfa;
+    }
+
+    // Whether GeneratedScanner was generated from the current rules; checked
+    // once, since computing the fingerprint walks every rule
+    private static class UpToDate {
+        static final boolean VALUE = GeneratedScanner.FINGERPRINT == ScannerTableFile.fingerprint();
+    }
+
+    public static boolean isUpToDate() {
+        return UpToDate.VALUE;
+    }
+
+    public static String generate(CompactDFA dfa) {
+        ScannerGenerator generator = new ScannerGenerator(dfa);
+        generator.emitClass();
+        return generator.out.toString();
+    }
+
+    private void emitClass() {
+        int start = dfa.getStartState();
+        line(0, "// Generated by ScannerGenerator from LexerRules; do not edit.");
+        line(0, "// Regenerate with: java ScannerGenerator");
+        line(0, "//");
+        line(0, "// Minimized DFA of the token rules, " + dfa.getStateCount() + " states, unrolled into");
+        line(0, "// switch statements: one method per state maps a character to the next state.");
+        line(0, "final class " + CLASS_NAME + " {");
+        line(1, "// ScannerTableFile.fingerprint() of the rules this scanner was generated from");
+        line(1, "static final long FINGERPRINT = 0x" + Long.toHexString(ScannerTableFile.fingerprint()) + "L;");
+        line(0, "");
+        line(1, "private " + CLASS_NAME + "() {");
+        line(1, "}");
+        line(0, "");
+        line(1, "// Longest match starting at start, packed as (rule << 32) | end, or -1");
+        line(1, "// if no prefix of input[start, end) matches a rule");
+        line(1, "static long match(char[] input, int start, int end) {");
+        line(2, "int state = " + start + ";");
+        line(2, "long accepted = " + (dfa.isAccepting(start) ? "accept(" + dfa.getAcceptLabel(start) + ", start)" : "-1") + ";");
+        line(2, "for (int i = start; i < end; i++) {");
+        line(3, "char c = input[i];");
+        line(3, "switch (state) {");
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            line(4, "case " + state + ": state = state" + state + "(c); break;");
+        }
+        line(4, "default: return accepted;");
+        line(3, "}");
+        line(3, "if (state < 0) {");
+        line(4, "return accepted;");
+        line(3, "}");
+        line(3, "int rule = acceptRule(state);");
+        line(3, "if (rule >= 0) {");
+        line(4, "accepted = accept(rule, i + 1);");
+        line(3, "}");
+        line(2, "}");
+        line(2, "return accepted;");
+        line(1, "}");
+        line(0, "");
+        line(1, "private static long accept(int rule, int end) {");
+        line(2, "return ((long) rule << 32) | end;");
+        line(1, "}");
+        line(0, "");
+        line(1, "// Token rule accepted in a state, or -1");
+        line(1, "private static int acceptRule(int state) {");
+        line(2, "switch (state) {");
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            if (dfa.isAccepting(state)) {
+                line(3, "case " + state + ": return " + dfa.getAcceptLabel(state) + ";");
+            }
+        }
+        line(3, "default: return -1;");
+        line(2, "}");
+        line(1, "}");
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            line(0, "");
+            emitState(state);
+        }
+        line(0, "}");
+    }
+
+    // Transitions of one state as a method returning the next state or -1.
+    // ASCII characters become case labels grouped by target; the rest of the
+    // character space becomes range tests. Keeping each state in its own
+    // method keeps them all well under the JIT's size limits.
+    private void emitState(int state) {
+        Map<Integer, List<Character>> asciiByTarget = new TreeMap<>();
+        List<int[]> wideRanges = new ArrayList<>();
+
+        char[] starts = dfa.getIntervalStarts();
+        int[] classes = dfa.getIntervalClasses();
+        for (int interval = 0; interval < starts.length; interval++) {
+            int low = starts[interval];
+            int high = (interval + 1 < starts.length) ? starts[interval + 1] - 1 : Character.MAX_VALUE;
+            int target = dfa.getTransitions()[state * dfa.getClassCount() + classes[interval]];
+            if (target < 0) {
+                continue;
+            }
+            for (int c = low; c <= high && c < CompactDFA.ASCII_SIZE; c++) {
+                asciiByTarget.computeIfAbsent(target, t -> new ArrayList<>()).add((char) c);
+            }
+            int wideLow = Math.max(low, CompactDFA.ASCII_SIZE);
+            if (wideLow <= high) {
+                int[] last = wideRanges.isEmpty() ? null : wideRanges.get(wideRanges.size() - 1);
+                if (last != null && last[1] + 1 == wideLow && last[2] == target) {
+                    last[1] = high;
+                } else {
+                    wideRanges.add(new int[] {wideLow, high, target});
+                }
+            }
+        }
+
+        line(1, "private static int state" + state + "(char c) {");
+        if (asciiByTarget.isEmpty() && wideRanges.isEmpty()) {
+            line(2, "return -1;");
+            line(1, "}");
+            return;
+        }
+        line(2, "switch (c) {");
+        for (Map.Entry<Integer, List<Character>> entry : asciiByTarget.entrySet()) {
+            List<Character> chars = entry.getValue();
+            StringBuilder labels = new StringBuilder();
+            for (int i = 0; i < chars.size(); i++) {
+                if (i > 0 && i % 8 == 0) {
+                    line(3, labels.toString().trim());
+                    labels.setLength(0);
+                }
+                labels.append("case ").append(charLiteral(chars.get(i))).append(": ");
+            }
+            line(3, labels.toString().trim());
+            line(4, "return " + entry.getKey() + ";");
+        }
+        line(3, "default:");
+        for (int[] range : wideRanges) {
+            line(4, "if (c >= " + range[0] + " && c <= " + range[1] + ") {");
+            line(5, "return " + range[2] + ";");
+            line(4, "}");
+        }
+        line(4, "return -1;");
+        line(2, "}");
+        line(1, "}");
+    }
+
+    // Printable characters as quoted literals, anything else as a number so
+    // no unicode escape ends up in the source
+    private static String charLiteral(char c) {
+        if (c == '\'' || c == '\\') {
+            return "'\\" + c + "'";
+        }
+        if (c >= ' ' && c < 127) {
+            return "'" + c + "'";
+        }
+        return Integer.toString(c);
+    }
+
+    private void line(int indent, String text) {
+        for (int i = 0; i < indent; i++) {
+            out.append("    ");
+        }
+        out.append(text).append('\n');
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : ".");
+        Path file = directory.resolve(CLASS_NAME + ".java");
+        CompactDFA dfa = ScannerTables.build();
+        Files.write(file, generate(dfa).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote " + file);
+        dfa.displaySummary();
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+// Binary file holding precompiled scanner tables, so a run can skip building
+// the NFA and DFA of LexerRules. Layout (big-endian):
+//
+//   int    magic "IQLT", int format version
+//   long   fingerprint of the rules and token types the tables were built from
+//   int    rule count, then per rule: token type name, spelling, error message
+//          (length-prefixed UTF-8, empty when absent)
+//   int    start state, state count, class count, interval count
+//   char[] interval starts, int[] interval classes
+//   int[]  transitions (stateCount * classCount)
+//   int[]  accept labels, long[] accept state bitset (length-prefixed)
+//
+// The loader memory-maps the file and copies the arrays straight out of the
+// mapping. A file whose version or fingerprint differs from the running code
+// is rejected as stale.
+class ScannerTableFile {
+    private static final int MAGIC = 0x49514C54;
+    private static final int FORMAT_VERSION = 1;
+
+    // Default location, overridden with -Diq.lexer.tables=<path>
+    static final String DEFAULT_PATH = "lexer.tables";
+
+    private ScannerTableFile() {
+    }
+
+    public static Path getPath() {
+        return Paths.get(System.getProperty("iq.lexer.tables", DEFAULT_PATH));
+    }
+
+    // Whether a table file was named with -Diq.lexer.tables
+    public static boolean isConfigured() {
+        return System.getProperty("iq.lexer.tables") != null;
+    }
+
+    // FNV-1a hash of everything that shapes the tables: the format version,
+    // every rule in order and the token type names
+    public static long fingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, Integer.toString(FORMAT_VERSION));
+        for (LexerRules.Rule rule : LexerRules.getRules()) {
+            hash = mix(hash, rule.getType().name());
+            hash = mix(hash, nullToEmpty(rule.getSpelling()));
+            hash = mix(hash, nullToEmpty(rule.getErrorMessage()));
+            hash = mix(hash, rule.getPattern());
+        }
+        for (TokenType type : TokenType.values()) {
+            hash = mix(hash, type.name());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        // Separator, so that "ab" + "c" and "a" + "bc" differ
+        return (hash ^ 0xff) * 0x100000001b3L;
+    }
+
+    public static void write(CompactDFA dfa, Path path) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(fingerprint());
+
+        List<LexerRules.Rule> rules = LexerRules.getRules();
+        out.writeInt(rules.size());
+        for (LexerRules.Rule rule : rules) {
+            writeString(out, rule.getType().name());
+            writeString(out, nullToEmpty(rule.getSpelling()));
+            writeString(out, nullToEmpty(rule.getErrorMessage()));
+        }
+
+        char[] intervalStarts = dfa.getIntervalStarts();
+        out.writeInt(dfa.getStartState());
+        out.writeInt(dfa.getStateCount());
+        out.writeInt(dfa.getClassCount());
+        out.writeInt(intervalStarts.length);
+        for (char start : intervalStarts) {
+            out.writeChar(start);
+        }
+        for (int symbolClass : dfa.getIntervalClasses()) {
+            out.writeInt(symbolClass);
+        }
+        for (int target : dfa.getTransitions()) {
+            out.writeInt(target);
+        }
+        for (int label : dfa.getAcceptLabels()) {
+            out.writeInt(label);
+        }
+        long[] acceptWords = dfa.getAcceptStates().toLongArray();
+        out.writeInt(acceptWords.length);
+        for (long word : acceptWords) {
+            out.writeLong(word);
+        }
+        out.flush();
+
+        // Write beside the target and move into place, so a concurrent loader
+        // never maps a half-written file
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "lexer", ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Load tables written by write(). Throws IOException if the file is
+    // missing, malformed or stale.
+    public static CompactDFA load(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a lexer table file: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Stale lexer tables in " + path + ": format version " + version
+                        + ", expected " + FORMAT_VERSION);
+            }
+            if (buffer.getLong() != fingerprint()) {
+                throw new IOException("Stale lexer tables in " + path + ": token rules have changed since they were built");
+            }
+
+            // The fingerprint matched, so the rule table should too; check it
+            // anyway since the scanner relies on the rule numbering
+            List<LexerRules.Rule> rules = LexerRules.getRules();
+            if (buffer.getInt() != rules.size()) {
+                throw new IOException("Stale lexer tables in " + path + ": rule count differs");
+            }
+            for (LexerRules.Rule rule : rules) {
+                if (!readString(buffer).equals(rule.getType().name())
+                        || !readString(buffer).equals(nullToEmpty(rule.getSpelling()))
+                        || !readString(buffer).equals(nullToEmpty(rule.getErrorMessage()))) {
+                    throw new IOException("Stale lexer tables in " + path + ": rule table differs");
+                }
+            }
+
+            int startState = buffer.getInt();
+            int stateCount = buffer.getInt();
+            int classCount = buffer.getInt();
+            int intervalCount = buffer.getInt();
+
+            char[] intervalStarts = new char[intervalCount];
+            buffer.asCharBuffer().get(intervalStarts);
+            buffer.position(buffer.position() + 2 * intervalCount);
+            int[] intervalClasses = readInts(buffer, intervalCount);
+            int[] transitions = readInts(buffer, Math.multiplyExact(stateCount, classCount));
+            int[] acceptLabels = readInts(buffer, stateCount);
+            long[] acceptWords = new long[buffer.getInt()];
+            buffer.asLongBuffer().get(acceptWords);
+            buffer.position(buffer.position() + 8 * acceptWords.length);
+
+            if (buffer.hasRemaining()) {
+                throw new IOException("Corrupt lexer tables in " + path + ": trailing bytes");
+            }
+            // Scanners index with these values unchecked
+            if (startState < 0 || startState >= stateCount
+                    || !allInRange(intervalClasses, 0, classCount)
+                    || !allInRange(transitions, -1, stateCount)
+                    || !allInRange(acceptLabels, -1, rules.size())) {
+                throw new IOException("Corrupt lexer tables in " + path + ": table entry out of range");
+            }
+            return new CompactDFA(startState, stateCount, classCount, intervalStarts, intervalClasses,
+                    transitions, BitSet.valueOf(acceptWords), acceptLabels);
+        } catch (RuntimeException e) {
+            // Buffer underflow or an absurd length: the file is truncated or damaged
+            throw new IOException("Corrupt lexer tables in " + path + ": " + e, e);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    // Whether every value lies in [low, high)
+    private static boolean allInRange(int[] values, int low, int high) {
+        for (int value : values) {
+            if (value < low || value >= high) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] utf8 = new byte[buffer.getInt()];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static String nullToEmpty(String text) {
+        return (text == null) ? "" : text;
+    }
+
+    // Build the tables from LexerRules and write them: java ScannerTableFile [path]
+    public static void main(String[] args) throws IOException {
+        Path path = (args.length > 0) ? Paths.get(args[0]) : getPath();
+        CompactDFA dfa = ScannerTables.build();
+        write(dfa, path);
+        System.out.println("Wrote lexer tables to " + path + " (" + Files.size(path) + " bytes)");
+        dfa.displaySummary();
+    }
+}
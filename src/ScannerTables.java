@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Scanner tables for the table-driven scan: the compact DFA of all token
+// rules. State s moves on a character of class k to
+// transitions[s * classCount + k] (-1 when the DFA dies), and acceptRules[s]
+// is the rule accepted in s (-1 if none). ASCII characters, which is all the
+// IQ alphabet uses outside character literals, are classified by a 128-entry
+// array; scanners fall back to CompactDFA.classOf for anything else.
+class ScannerTables {
+    static final int ASCII_SIZE = CompactDFA.ASCII_SIZE;
+
+    // Lookahead bound when the DFA can read on forever without accepting
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final CompactDFA dfa;
+    private final int maxLookahead;
+
+    private ScannerTables(CompactDFA dfa) {
+        this.dfa = dfa;
+        this.maxLookahead = computeMaxLookahead(dfa);
+    }
+
+    // Tables are set up once, on first use: loaded from the precompiled
+    // table file when there is an up-to-date one, built from LexerRules otherwise
+    private static class Holder {
+        static final ScannerTables INSTANCE = new ScannerTables(loadOrBuild());
+    }
+
+    private static CompactDFA loadOrBuild() {
+        Path path = ScannerTableFile.getPath();
+        if (Files.isRegularFile(path)) {
+            try {
+                return ScannerTableFile.load(path);
+            } catch (IOException e) {
+                System.err.println("Warning: " + e.getMessage() + "; rebuilding scanner tables");
+            }
+        }
+        return build();
+    }
+
+    // Compile the scanner tables from the token rules
+    static CompactDFA build() {
+        return DFA.fromNFA(LexerRules.buildNFA()).minimize().compact();
+    }
+
+    public static ScannerTables getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public CompactDFA getDFA() {
+        return dfa;
+    }
+
+    public int getStartState() {
+        return dfa.getStartState();
+    }
+
+    public int getClassCount() {
+        return dfa.getClassCount();
+    }
+
+    // Class of every ASCII character
+    public int[] getAsciiClasses() {
+        return dfa.getAsciiClasses();
+    }
+
+    public int[] getTransitions() {
+        return dfa.getTransitions();
+    }
+
+    public int[] getAcceptRules() {
+        return dfa.getAcceptLabels();
+    }
+
+    // Most characters a maximal-munch scan reads past the end of the token it
+    // returns (one past the last accepting point, counting the character the
+    // DFA dies on), or UNBOUNDED. A token is unaffected by an edit that
+    // starts at or after its end plus this.
+    public int getMaxLookahead() {
+        return maxLookahead;
+    }
+
+    // Longest run of reads from any state through states that accept nothing
+    private static int computeMaxLookahead(CompactDFA dfa) {
+        int stateCount = dfa.getStateCount();
+        int[] reads = new int[stateCount]; // 0 while not computed
+        boolean[] onPath = new boolean[stateCount];
+        int max = 0;
+        for (int state = 0; state < stateCount; state++) {
+            int r = readsFrom(dfa, state, reads, onPath);
+            if (r == UNBOUNDED) {
+                return UNBOUNDED;
+            }
+            max = Math.max(max, r);
+        }
+        return max;
+    }
+
+    // Reads possible from state before the DFA dies or accepts again
+    private static int readsFrom(CompactDFA dfa, int state, int[] reads, boolean[] onPath) {
+        if (reads[state] > 0) {
+            return reads[state];
+        }
+        if (onPath[state]) {
+            return UNBOUNDED; // a cycle through non-accepting states
+        }
+        onPath[state] = true;
+        int[] transitions = dfa.getTransitions();
+        int[] accepts = dfa.getAcceptLabels();
+        int classCount = dfa.getClassCount();
+        int longest = 0;
+        for (int k = 0; k < classCount; k++) {
+            int next = transitions[state * classCount + k];
+            if (next >= 0 && accepts[next] < 0) {
+                int r = readsFrom(dfa, next, reads, onPath);
+                if (r == UNBOUNDED) {
+                    return UNBOUNDED;
+                }
+                longest = Math.max(longest, r);
+            }
+        }
+        onPath[state] = false;
+        reads[state] = longest + 1;
+        return reads[state];
+    }
+}
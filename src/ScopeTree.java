@@ -0,0 +1,299 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The scopes of a source with their start and end offsets, and the symbols
+// declared in each, recorded by DeclarationTracker as the tokens go by. It
+// answers "which symbols are visible at this position" without replaying
+// the lexer up to it.
+//
+// Scopes are numbered by their scope id: 0 is the global scope, covering
+// the whole source, and block k is the k-th '{' opened. A block runs from
+// its '{' to the end of its '}', or to the end of the source if it is never
+// closed. Braces nest, so the intervals do too, and the scope boundaries
+// cut the source into segments that each lie in a single innermost scope.
+// The first query builds two indexes:
+//
+//   - the segment boundaries in order, with each segment's innermost
+//     scope: a binary search finds the scope of an offset, and its
+//     enclosing scopes are its chain of parents;
+//   - the symbols grouped by scope (compressed rows: the symbols of scope
+//     s are at [symbolRows[s], symbolRows[s + 1]) in source order);
+//   - for each declaration, the declaration of the same name it shadows,
+//     the nearest one in an enclosing scope before it, or -1.
+//
+// A query walks out from the innermost scope and takes from each scope the
+// symbols declared before the position. Taking a symbol marks the chain of
+// declarations it shadows, and marked ones are skipped further out, with
+// no set of names built per query. It costs O(log n + d + h + k): placing
+// the offset, d enclosing scopes, h shadowed declarations passed over and
+// k symbols returned. Recording more tokens drops the indexes, to be
+// rebuilt by the next query.
+public class ScopeTree {
+    // End of a scope that is still open
+    public static final int END_OF_SOURCE = Integer.MAX_VALUE;
+
+    // By scope id
+    private int[] starts;
+    private int[] ends;
+    private int[] parents;
+    private int scopeCount;
+    private int current;           // innermost open scope
+    private int[] closed;          // scope ids in the order they were closed
+    private int closedCount;
+
+    // Declarations in source order
+    private Symbol[] symbols;
+    private int[] symbolOffsets;
+    private int symbolCount;
+    private final Map<Symbol, Integer> ids; // declaration index of each symbol object
+
+    // Query indexes, null until the first query after a change
+    private int[] boundaries;      // offsets where the innermost scope changes
+    private int[] innermost;       // innermost scope from boundaries[i] on
+    private int boundaryCount;
+    private int[] symbolRows;
+    private int[] rowSymbols;      // symbol indexes grouped by scope
+    private int[] shadows;         // by symbol: the declaration it shadows, or -1
+    private int[] hiddenIn;        // by symbol: last visibleAt query that skips it
+    private int queries;
+
+    ScopeTree() {
+        this.starts = new int[16];
+        this.ends = new int[16];
+        this.parents = new int[16];
+        this.starts[0] = 0;
+        this.ends[0] = END_OF_SOURCE;
+        this.parents[0] = -1;
+        this.scopeCount = 1;
+        this.closed = new int[16];
+        this.symbols = new Symbol[16];
+        this.symbolOffsets = new int[16];
+        this.ids = new IdentityHashMap<>();
+    }
+
+    // A block opens with the '{' at offset; it gets the next scope id
+    void open(int offset) {
+        if (scopeCount == starts.length) {
+            starts = Arrays.copyOf(starts, scopeCount * 2);
+            ends = Arrays.copyOf(ends, scopeCount * 2);
+            parents = Arrays.copyOf(parents, scopeCount * 2);
+        }
+        starts[scopeCount] = offset;
+        ends[scopeCount] = END_OF_SOURCE;
+        parents[scopeCount] = current;
+        current = scopeCount++;
+        boundaries = null;
+    }
+
+    // The innermost open block closes with a '}' ending at end; a '}' with
+    // no open block is ignored, as SymbolTable.exitScope ignores it
+    void close(int end) {
+        if (current == 0) {
+            return;
+        }
+        if (closedCount == closed.length) {
+            closed = Arrays.copyOf(closed, closedCount * 2);
+        }
+        ends[current] = end;
+        closed[closedCount++] = current;
+        current = parents[current];
+        boundaries = null;
+    }
+
+    // A symbol was declared by the identifier at offset; it gets the next
+    // declaration index as its id in this tree. The id is kept here, not
+    // in the symbol: with shared globals, a symbol is also seen by the
+    // trees of other files, where it has no id.
+    void declare(Symbol symbol, int offset) {
+        if (symbolCount == symbols.length) {
+            symbols = Arrays.copyOf(symbols, symbolCount * 2);
+            symbolOffsets = Arrays.copyOf(symbolOffsets, symbolCount * 2);
+        }
+        ids.put(symbol, symbolCount);
+        symbols[symbolCount] = symbol;
+        symbolOffsets[symbolCount++] = offset;
+        boundaries = null;
+    }
+
+    // Number of scopes, the global scope included
+    public int getScopeCount() {
+        return scopeCount;
+    }
+
+    public int getStart(int scopeId) {
+        return starts[scopeId];
+    }
+
+    // End offset of a scope, exclusive, or END_OF_SOURCE if never closed
+    public int getEnd(int scopeId) {
+        return ends[scopeId];
+    }
+
+    // Enclosing scope, or -1 for the global scope
+    public int getParent(int scopeId) {
+        return parents[scopeId];
+    }
+
+    // Number of declarations, the ids running from 0
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    // Id of a symbol declared in this source, or -1 for one it did not declare
+    public int idOf(Symbol symbol) {
+        Integer id = ids.get(symbol);
+        return (id != null) ? id : -1;
+    }
+
+    public Symbol getSymbol(int id) {
+        return symbols[id];
+    }
+
+    // Offset of the identifier declaring a symbol
+    public int getDeclarationOffset(int id) {
+        return symbolOffsets[id];
+    }
+
+    // Id of the symbol whose declaring identifier covers offset, or -1
+    public int declarationAt(int offset) {
+        int i = lastAtOrBefore(symbolOffsets, symbolCount, offset);
+        return (i >= 0 && offset < symbolOffsets[i] + symbols[i].getName().length()) ? i : -1;
+    }
+
+    // Index of the last of the sorted values[0, count) that is <= offset, or -1
+    static int lastAtOrBefore(int[] values, int count, int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    // Innermost scope containing offset
+    public int scopeAt(int offset) {
+        buildIndexes();
+        int i = lastAtOrBefore(boundaries, boundaryCount, offset);
+        return (i < 0) ? 0 : innermost[i];
+    }
+
+    // Symbols declared in a scope, in source order
+    public List<Symbol> getScopeSymbols(int scopeId) {
+        buildIndexes();
+        List<Symbol> scopeSymbols = new ArrayList<>(symbolRows[scopeId + 1] - symbolRows[scopeId]);
+        for (int i = symbolRows[scopeId]; i < symbolRows[scopeId + 1]; i++) {
+            scopeSymbols.add(symbols[rowSymbols[i]]);
+        }
+        return scopeSymbols;
+    }
+
+    // The symbols an identifier at offset would resolve to, innermost
+    // scope first: one per name, declared before offset
+    public List<Symbol> visibleAt(int offset) {
+        buildIndexes();
+        if (++queries == 0) {
+            Arrays.fill(hiddenIn, 0); // the query count wrapped around
+            queries = 1;
+        }
+        List<Symbol> visible = new ArrayList<>();
+        for (int scope = scopeAt(offset); scope >= 0; scope = parents[scope]) {
+            int from = symbolRows[scope];
+            int to = declaredBefore(from, symbolRows[scope + 1], offset);
+            for (int i = from; i < to; i++) {
+                int id = rowSymbols[i];
+                if (hiddenIn[id] != queries) {
+                    visible.add(symbols[id]);
+                    // A marked declaration's own chain is already marked
+                    for (int s = shadows[id]; s >= 0 && hiddenIn[s] != queries; s = shadows[s]) {
+                        hiddenIn[s] = queries;
+                    }
+                }
+            }
+        }
+        return visible;
+    }
+
+    // End of the row slice [from, to) holding the symbols declared before offset
+    private int declaredBefore(int from, int to, int offset) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (symbolOffsets[rowSymbols[mid]] < offset) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private void buildIndexes() {
+        if (boundaries != null) {
+            return;
+        }
+        // Starts are in order of scope id and ends in order of closing, so
+        // the boundaries come from merging the two. At the same offset an
+        // end goes first: "}{" leaves one block, then enters the next.
+        boundaries = new int[2 * scopeCount];
+        innermost = new int[2 * scopeCount];
+        boundaryCount = 0;
+        int next = 1;
+        int nextClosed = 0;
+        while (next < scopeCount || nextClosed < closedCount) {
+            if (nextClosed < closedCount
+                    && (next == scopeCount || ends[closed[nextClosed]] <= starts[next])) {
+                int scope = closed[nextClosed++];
+                boundaries[boundaryCount] = ends[scope];
+                innermost[boundaryCount++] = parents[scope];
+            } else {
+                boundaries[boundaryCount] = starts[next];
+                innermost[boundaryCount++] = next++;
+            }
+        }
+
+        // Counting sort of the symbols by scope; stable, so rows stay in source order
+        symbolRows = new int[scopeCount + 1];
+        for (int i = 0; i < symbolCount; i++) {
+            symbolRows[symbols[i].getScopeId() + 1]++;
+        }
+        for (int s = 0; s < scopeCount; s++) {
+            symbolRows[s + 1] += symbolRows[s];
+        }
+        rowSymbols = new int[symbolCount];
+        int[] fill = Arrays.copyOf(symbolRows, scopeCount);
+        for (int i = 0; i < symbolCount; i++) {
+            rowSymbols[fill[symbols[i].getScopeId()]++] = i;
+        }
+
+        // The last declaration of each name so far is shadowed by the next
+        // one if its scope encloses the next one's. If not, its scope was
+        // closed before, and what it shadowed is the next candidate; it is
+        // passed over for good, so the pass is linear.
+        shadows = new int[symbolCount];
+        hiddenIn = new int[symbolCount];
+        queries = 0;
+        Map<String, Integer> lastByName = new HashMap<>();
+        for (int i = 0; i < symbolCount; i++) {
+            Integer last = lastByName.put(symbols[i].getName(), i);
+            int candidate = (last != null) ? last : -1;
+            int scope = symbols[i].getScopeId();
+            while (candidate >= 0 && !encloses(symbols[candidate].getScopeId(), scope)) {
+                candidate = shadows[candidate];
+            }
+            shadows[i] = candidate;
+        }
+    }
+
+    // Whether scope outer is scope inner or contains it
+    private boolean encloses(int outer, int inner) {
+        return starts[outer] <= starts[inner] && ends[inner] <= ends[outer];
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Cost of SymbolTable snapshots. A generated program (globals, each with a
+// block of locals shadowing some of them) is run through DeclarationTracker
+// while a snapshot is taken every `interval` tokens and the last `keep` are
+// kept alive, as an editor's readers would hold on to recent versions.
+//
+//   java SnapshotBenchmark [globals] [interval] [keep]
+//
+// Exited scopes are not archived, so the table only holds its open scopes
+// and a snapshot keeps alive what has been popped since. Reported: tracking
+// time with and without snapshots, the heap the kept snapshots retain
+// beyond the table itself, against what full copies of the visible names
+// would retain, and lookups in a snapshot against the live table.
+public class SnapshotBenchmark {
+    private static final int WARMUP_RUNS = 5;
+    private static final int TIMED_RUNS = 10;
+
+    // Keeps what has been measured reachable while the heap is measured
+    // again; the JIT would otherwise free locals past their last use
+    private static final List<Object> retained = new ArrayList<>();
+
+    public static void main(String[] args) {
+        int globalCount = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int interval = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int keep = (args.length > 2) ? Integer.parseInt(args[2]) : 8;
+
+        TokenBuffer tokens = new LexicalAnalyser(generate(globalCount), ScanMode.TABLE_DRIVEN).tokenizeToBuffer();
+        System.out.println(globalCount + " globals, " + tokens.size() + " tokens, snapshot every "
+                + interval + " tokens, " + keep + " kept");
+
+        long plain = Long.MAX_VALUE;
+        long snapshotting = Long.MAX_VALUE;
+        for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++) {
+            long start = System.nanoTime();
+            track(tokens, 0, 0);
+            long tracked = System.nanoTime();
+            track(tokens, interval, keep);
+            long end = System.nanoTime();
+            if (run >= WARMUP_RUNS) {
+                plain = Math.min(plain, tracked - start);
+                snapshotting = Math.min(snapshotting, end - tracked);
+            }
+        }
+        System.out.printf("tracking       %8.2f ms%n", plain / 1e6);
+        System.out.printf("+ snapshots    %8.2f ms%n", snapshotting / 1e6);
+
+        // Retained heap: the table alone, then with the kept snapshots, then
+        // with a HashMap copy of the visible names in place of each snapshot
+        retained.add(tokens);
+        long base = usedHeap();
+        Tracked alone = track(tokens, 0, 0);
+        retained.add(alone);
+        long tableBytes = usedHeap() - base;
+        Tracked withSnapshots = track(tokens, interval, keep);
+        retained.add(withSnapshots);
+        long snapshotBytes = usedHeap() - base - 2 * tableBytes;
+        List<Map<String, Symbol>> copies = new ArrayList<>();
+        for (SymbolTable.Snapshot snapshot : withSnapshots.kept) {
+            Map<String, Symbol> copy = new HashMap<>();
+            for (Symbol symbol : snapshot.getVisibleSymbols()) {
+                copy.put(symbol.getName(), symbol);
+            }
+            copies.add(copy);
+        }
+        retained.add(copies);
+        long copyBytes = usedHeap() - base - 2 * tableBytes - snapshotBytes;
+        System.out.printf("table          %8.2f MB%n", tableBytes / 1e6);
+        System.out.printf("%d snapshots   %8.2f MB%n", withSnapshots.kept.size(), snapshotBytes / 1e6);
+        System.out.printf("%d full copies %8.2f MB%n", copies.size(), copyBytes / 1e6);
+
+        // Lookups of random global names, live table against a snapshot
+        String[] names = new String[1 << 16];
+        Random random = new Random(1);
+        for (int i = 0; i < names.length; i++) {
+            names[i] = GlobalTableBenchmark.nameOf(random.nextInt(globalCount));
+        }
+        SymbolTable table = alone.tracker.getSymbolTable();
+        SymbolTable.Snapshot snapshot = table.snapshot();
+        long live = Long.MAX_VALUE;
+        long snap = Long.MAX_VALUE;
+        int found = 0;
+        for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++) {
+            long start = System.nanoTime();
+            for (String name : names) {
+                found += (table.lookup(name) != null) ? 1 : 0;
+            }
+            long looked = System.nanoTime();
+            for (String name : names) {
+                found += (snapshot.lookup(name) != null) ? 1 : 0;
+            }
+            long end = System.nanoTime();
+            if (run >= WARMUP_RUNS) {
+                live = Math.min(live, looked - start);
+                snap = Math.min(snap, end - looked);
+            }
+        }
+        if (found != 2 * names.length * (WARMUP_RUNS + TIMED_RUNS)) {
+            throw new IllegalStateException("Lost a global");
+        }
+        System.out.printf("table lookup   %8.1f ns%n", (double) live / names.length);
+        System.out.printf("snapshot lookup%8.1f ns%n", (double) snap / names.length);
+    }
+
+    private static final class Tracked {
+        final DeclarationTracker tracker;
+        final List<SymbolTable.Snapshot> kept;
+
+        Tracked(DeclarationTracker tracker, List<SymbolTable.Snapshot> kept) {
+            this.tracker = tracker;
+            this.kept = kept;
+        }
+    }
+
+    // Feed all tokens to a fresh tracker, snapshotting every interval tokens
+    // (never if 0) and keeping the last keep snapshots
+    private static Tracked track(TokenBuffer tokens, int interval, int keep) {
+        DeclarationTracker tracker = new DeclarationTracker(false);
+        SymbolTable.Snapshot[] ring = new SymbolTable.Snapshot[Math.max(keep, 1)];
+        int taken = 0;
+        TokenBuffer.Cursor cursor = tokens.cursor();
+        for (int i = 1; cursor.next(); i++) {
+            tracker.accept(cursor);
+            if (interval > 0 && i % interval == 0) {
+                ring[taken++ % ring.length] = tracker.getSymbolTable().snapshot();
+            }
+        }
+        List<SymbolTable.Snapshot> kept = new ArrayList<>();
+        for (int i = Math.max(0, taken - keep); i < taken; i++) {
+            kept.add(ring[i % ring.length]);
+        }
+        return new Tracked(tracker, kept);
+    }
+
+    // Each global is followed by a block whose locals shadow it and its neighbour
+    private static String generate(int globalCount) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < globalCount; i++) {
+            String name = GlobalTableBenchmark.nameOf(i);
+            String previous = GlobalTableBenchmark.nameOf(Math.max(i - 1, 0));
+            sb.append("num ").append(name).append(" = ").append(i).append(";\n");
+            sb.append("{\n    deci ").append(name).append(" = 0.5;\n");
+            sb.append("    num ").append(previous).append(" = ").append(name).append(";\n");
+            sb.append("    {\n        letter ").append(name).append(" = 'c';\n");
+            sb.append("        ").append(previous).append(" = ").append(previous).append(";\n    }\n}\n");
+        }
+        return sb.toString();
+    }
+
+    // Heap in use once collections stop freeing anything
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used && i >= 3) {
+                return Math.min(now, used);
+            }
+            used = Math.min(used, now);
+        }
+        return used;
+    }
+}
@@ -1,20 +1,63 @@
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class State {
+    // A transition on every character in [low, high], as produced for
+    // character classes by NFA.compile
+    public static class RangeTransition {
+        private final char low;
+        private final char high;
+        private final State target;
+
+        public RangeTransition(char low, char high, State target) {
+            this.low = low;
+            this.high = high;
+            this.target = target;
+        }
+
+        public char getLow() {
+            return low;
+        }
+
+        public char getHigh() {
+            return high;
+        }
+
+        public State getTarget() {
+            return target;
+        }
+
+        public boolean contains(char symbol) {
+            return low <= symbol && symbol <= high;
+        }
+    }
+
+    // Bumped by every new epsilon edge, on any state. A cache of epsilon
+    // closures is only valid while the count is what it was when the cache
+    // was built: an NFA cannot tell whether another NFA sharing its states
+    // has added edges to them.
+    private static final AtomicInteger epsilonEdits = new AtomicInteger();
+
     private int id;
     private boolean isAccepting;
+    private int acceptLabel;
     private Map<Character, Set<State>> transitions;
     private Set<State> epsilonTransitions;
+    private List<RangeTransition> rangeTransitions;
 
     public State(int id) {
         this.id = id;
         this.isAccepting = false;
+        this.acceptLabel = -1;
         this.transitions = new HashMap<>();
         this.epsilonTransitions = new HashSet<>();
+        this.rangeTransitions = new ArrayList<>();
     }
 
     public int getId() {
@@ -29,6 +72,17 @@ public class State {
         isAccepting = accepting;
     }
 
+    // Label identifying which token rule this state accepts (-1 if none).
+    // Unlike the accepting flag, the label survives Thompson combinators,
+    // so a union of several token NFAs still knows which rule matched.
+    public int getAcceptLabel() {
+        return acceptLabel;
+    }
+
+    public void setAcceptLabel(int acceptLabel) {
+        this.acceptLabel = acceptLabel;
+    }
+
     public void addTransition(char symbol, State target) {
         if (!transitions.containsKey(symbol)) {
             transitions.put(symbol, new HashSet<>());
@@ -36,20 +90,50 @@ public class State {
         transitions.get(symbol).add(target);
     }
 
+    public void addRangeTransition(char low, char high, State target) {
+        rangeTransitions.add(new RangeTransition(low, high, target));
+    }
+
     public void addEpsilonTransition(State target) {
-        epsilonTransitions.add(target);
+        if (epsilonTransitions.add(target)) {
+            epsilonEdits.incrementAndGet();
+        }
     }
 
+    // Number of epsilon edges added to any state so far
+    static int getEpsilonEdits() {
+        return epsilonEdits.get();
+    }
+
+    // Read-only; empty when there is no transition on the symbol. Includes
+    // the targets of range transitions covering the symbol.
     public Set<State> getTransitions(char symbol) {
-        return transitions.getOrDefault(symbol, new HashSet<>());
+        Set<State> targets = transitions.get(symbol);
+        if (rangeTransitions.isEmpty()) {
+            return (targets != null) ? Collections.unmodifiableSet(targets) : Collections.emptySet();
+        }
+        Set<State> all = (targets != null) ? new HashSet<>(targets) : new HashSet<>();
+        for (RangeTransition range : rangeTransitions) {
+            if (range.contains(symbol)) {
+                all.add(range.getTarget());
+            }
+        }
+        return all;
     }
 
+    // Read-only view; epsilon edges are only added through addEpsilonTransition
     public Set<State> getEpsilonTransitions() {
-        return new HashSet<>(epsilonTransitions);
+        return Collections.unmodifiableSet(epsilonTransitions);
     }
 
+    // Read-only view of all single-character transitions
     public Map<Character, Set<State>> getAllTransitions() {
-        return new HashMap<>(transitions);
+        return Collections.unmodifiableMap(transitions);
+    }
+
+    // Read-only view of all range transitions
+    public List<RangeTransition> getRangeTransitions() {
+        return Collections.unmodifiableList(rangeTransitions);
     }
     
     @Override
@@ -62,6 +146,6 @@ public class State {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Integer.hashCode(id);
     }
 }
\ No newline at end of file
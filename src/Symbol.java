@@ -0,0 +1,94 @@
+// Symbol class to represent entries in symbol table. Immutable, so a
+// symbol can be handed to snapshots and other threads as it is: a new
+// value is a new Symbol (see SymbolTable.updateValue).
+class Symbol {
+    private final String name;
+    private final SymbolType type;
+    private final String dataType;
+    private final boolean isConstant;
+    private final boolean isGlobal;
+    private final Object value;
+    private final int scope;
+    private final int scopeId;
+    private final int line;
+    private final int column;
+    final Symbol shadowed; // symbol of the same name this one hides, or null
+    final Symbol below;    // symbol pushed before this one on its table's scope stack
+
+    public Symbol(String name, SymbolType type, String dataType, boolean isConstant,
+                 boolean isGlobal, Object value, int scope, int scopeId, int line, int column) {
+        this(name, type, dataType, isConstant, isGlobal, value, scope, scopeId, line, column, null, null);
+    }
+
+    // A symbol linked into a SymbolTable's shadowing chain and scope stack
+    Symbol(String name, SymbolType type, String dataType, boolean isConstant, boolean isGlobal,
+           Object value, int scope, int scopeId, int line, int column, Symbol shadowed, Symbol below) {
+        this.name = name;
+        this.type = type;
+        this.dataType = dataType;
+        this.isConstant = isConstant;
+        this.isGlobal = isGlobal;
+        this.value = value;
+        this.scope = scope;
+        this.scopeId = scopeId;
+        this.line = line;
+        this.column = column;
+        this.shadowed = shadowed;
+        this.below = below;
+    }
+
+    // The same declaration with another value
+    Symbol withValue(Object value) {
+        return new Symbol(name, type, dataType, isConstant, isGlobal, value, scope, scopeId,
+                line, column, shadowed, below);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SymbolType getType() {
+        return type;
+    }
+
+    public String getDataType() {
+        return dataType;
+    }
+
+    public boolean isConstant() {
+        return isConstant;
+    }
+
+    public boolean isGlobal() {
+        return isGlobal;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    // Nesting level of the declaring scope, 0 for global
+    public int getScope() {
+        return scope;
+    }
+
+    // Unique id of the declaring scope, 0 for global; sibling blocks differ
+    public int getScopeId() {
+        return scopeId;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-15s %-10s %-10s %-10s %-10s %-15s %d",
+                name, type, dataType, isConstant ? "const" : "var",
+                isGlobal ? "global" : "local", value, scope);
+    }
+}
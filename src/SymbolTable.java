@@ -1,108 +1,115 @@
 // SymbolTable.java
 import java.util.*;
 
-// Symbol class to represent entries in symbol table
-class Symbol {
-    private String name;
-    private SymbolType type;
-    private String dataType;
-    private boolean isConstant;
-    private boolean isGlobal;
-    private Object value;
-    private int scope;
-    private int line;
-    private int column;
-    
-    public Symbol(String name, SymbolType type, String dataType, boolean isConstant, 
-                 boolean isGlobal, Object value, int scope, int line, int column) {
-        this.name = name;
-        this.type = type;
-        this.dataType = dataType;
-        this.isConstant = isConstant;
-        this.isGlobal = isGlobal;
-        this.value = value;
-        this.scope = scope;
-        this.line = line;
-        this.column = column;
-    }
-    
-    public String getName() {
-        return name;
-    }
-    
-    public SymbolType getType() {
-        return type;
-    }
-    
-    public String getDataType() {
-        return dataType;
-    }
-    
-    public boolean isConstant() {
-        return isConstant;
-    }
-    
-    public boolean isGlobal() {
-        return isGlobal;
-    }
-    
-    public Object getValue() {
-        return value;
-    }
+// Symbol Table implementation: a stack of scopes over shadowing chains.
+// Each name maps to its innermost visible symbol, which links to the symbol
+// it shadows, so insert and lookup are one hash probe. Symbols of nested
+// scopes are also pushed on an undo stack; exiting a scope pops its symbols
+// and restores the names they hid, so only the symbols of live scopes are
+// held. With archiving on, exited scopes are kept in flat arrays instead,
+// for reporting.
+//
+// Nothing a symbol was added to is changed in place afterwards: symbols
+// are immutable, the name maps are PersistentMaps, the undo stack is
+// linked through the symbols themselves, and the global and archive arrays
+// are only appended to. So snapshot() just captures the current roots and
+// counts, in O(1), and readers on other threads query the Snapshot without
+// locking while the table goes on changing.
+//
+// updateValue replaces the symbol in the name maps by a copy with the new
+// value. The undo stack and the globals array keep the symbol as it was
+// declared; once a value has been updated, reading them goes through the
+// name maps to find each declaration's current copy.
+//
+// In a multi-file run the table holds one file's scopes, on top of the
+// GlobalSymbolTable shared by all files: its globals are also declared
+// there, and names it cannot resolve are looked up there.
+public class SymbolTable {
+    private PersistentMap<String, Symbol> visible;   // innermost symbol per name
+    private PersistentMap<String, Symbol> globalsByName;
+    private Symbol[] globals;                        // scope 0, never exited, as declared
+    private int globalCount;
+    private Symbol top;                              // innermost symbol of the live nested scopes
+    private Symbol[] scopeBottoms;                   // top when each live scope was entered, by level
+    private int[] scopeIds;                          // id of each live scope, by level
+    private int currentScope;
+    private int lastScopeId;
+    private boolean valuesUpdated;                   // some symbol was replaced by updateValue
     
-    public void setValue(Object value) {
-        if (!isConstant) {
-            this.value = value;
-        }
-    }
+    // Exited scopes: the symbols of archived scope k are
+    // archived[archivedStarts[k], archivedStarts[k + 1])
+    private final boolean archiveExitedScopes;
+    private Symbol[] archived;
+    private int archivedSize;
+    private int[] archivedScopeIds;
+    private int[] archivedStarts;
+    private int archivedScopeCount;
     
-    public int getScope() {
-        return scope;
-    }
+    private final GlobalSymbolTable shared; // or null
+    private final int file;                 // index of this table's file in the shared scope
     
-    public int getLine() {
-        return line;
+    public SymbolTable() {
+        this(true);
     }
     
-    public int getColumn() {
-        return column;
+    // Without archiving, symbols are dropped when their scope is exited
+    public SymbolTable(boolean archiveExitedScopes) {
+        this(archiveExitedScopes, null, -1);
     }
     
-    @Override
-    public String toString() {
-        return String.format("%-15s %-10s %-10s %-10s %-10s %-15s %d",
-                name, type, dataType, isConstant ? "const" : "var", 
-                isGlobal ? "global" : "local", value, scope);
+    // Scopes of one file over a shared global scope, for one thread; exited
+    // scopes are not archived. While shared is not frozen, globals are
+    // declared to it and lookups only see this file. After the freeze, a
+    // global that another file declared first is a redeclaration, and
+    // lookups fall back on the other files' globals.
+    public SymbolTable(GlobalSymbolTable shared, int file) {
+        this(false, shared, file);
     }
-}
-
-// Enum for symbol types
-enum SymbolType {
-    VARIABLE,
-    FUNCTION,
-    PARAMETER
-}
-
-// Symbol Table implementation
-public class SymbolTable {
-    private Map<String, List<Symbol>> symbols;
-    private int currentScope;
     
-    public SymbolTable() {
-        this.symbols = new HashMap<>();
+    private SymbolTable(boolean archiveExitedScopes, GlobalSymbolTable shared, int file) {
+        this.visible = PersistentMap.empty();
+        this.globalsByName = PersistentMap.empty();
+        this.globals = new Symbol[16];
+        this.scopeBottoms = new Symbol[8];
+        this.scopeIds = new int[8];
         this.currentScope = 0;  // Global scope
+        this.archiveExitedScopes = archiveExitedScopes;
+        this.archived = new Symbol[16];
+        this.archivedScopeIds = new int[8];
+        this.archivedStarts = new int[9];
+        this.shared = shared;
+        this.file = file;
     }
     
     // Enter a new scope
     public void enterScope() {
         currentScope++;
+        if (currentScope == scopeIds.length) {
+            scopeBottoms = Arrays.copyOf(scopeBottoms, currentScope * 2);
+            scopeIds = Arrays.copyOf(scopeIds, currentScope * 2);
+        }
+        scopeBottoms[currentScope] = top;
+        scopeIds[currentScope] = ++lastScopeId;
     }
     
-    // Exit the current scope
+    // Exit the current scope, unhiding the names its symbols shadowed
     public void exitScope() {
-        if (currentScope > 0) {
-            currentScope--;
+        if (currentScope == 0) {
+            return;
         }
+        Symbol bottom = scopeBottoms[currentScope];
+        if (archiveExitedScopes) {
+            archive(scopeIds[currentScope], top, bottom);
+        }
+        // An updated copy has the same shadowed link as the stack's symbol
+        for (Symbol symbol = top; symbol != bottom; symbol = symbol.below) {
+            // A global declared from inside a block is not on any chain
+            Symbol hidden = (symbol.shadowed != null) ? symbol.shadowed : globalsByName.get(symbol.getName());
+            visible = (hidden != null) ? visible.put(symbol.getName(), hidden) : visible.remove(symbol.getName());
+        }
+        top = bottom;
+        scopeBottoms[currentScope] = null;
+        currentScope--;
     }
     
     // Get current scope level
@@ -110,74 +117,85 @@ public class SymbolTable {
         return currentScope;
     }
     
+    // Unique id of the current scope, 0 for global
+    public int getCurrentScopeId() {
+        return scopeIds[currentScope];
+    }
+    
     // Insert a new symbol
     public boolean insert(String name, SymbolType type, String dataType, boolean isConstant, 
                          boolean isGlobal, Object value, int line, int column) {
-        // Check if the symbol already exists in the current scope
-        if (lookupInCurrentScope(name) != null) {
-            return false; // Symbol already exists in current scope
-        }
-        
         // Use the actual scope (global or current)
         int scope = isGlobal ? 0 : currentScope;
         
-        Symbol symbol = new Symbol(name, type, dataType, isConstant, isGlobal, value, scope, line, column);
+        // Check if the symbol already exists in that scope
+        if (lookupInScope(name, scope) != null) {
+            return false;
+        }
+        if (scope == 0 && shared != null && shared.isFrozen() && !shared.owns(name, file, line, column)) {
+            return false; // declared first by another file
+        }
         
-        if (!symbols.containsKey(name)) {
-            symbols.put(name, new ArrayList<>());
+        Symbol innermost = visible.get(name);
+        boolean shadows = innermost == null || innermost.getScope() < scope;
+        Symbol symbol = new Symbol(name, type, dataType, isConstant, isGlobal, value,
+                scope, scopeIds[scope], line, column, shadows ? innermost : null, (scope == 0) ? null : top);
+        if (scope == 0 && shared != null && !shared.isFrozen()) {
+            shared.declare(symbol, file);
+        }
+        if (shadows) {
+            visible = visible.put(name, symbol);
         }
+        // else a global declared from inside a block that has the name:
+        // it becomes visible when the block's symbol is popped
         
-        symbols.get(name).add(symbol);
+        if (scope == 0) {
+            if (globalCount == globals.length) {
+                globals = Arrays.copyOf(globals, globalCount * 2);
+            }
+            globals[globalCount++] = symbol;
+            globalsByName = globalsByName.put(name, symbol);
+        } else {
+            top = symbol;
+        }
         return true;
     }
     
     // Lookup a symbol in the current scope
     public Symbol lookupInCurrentScope(String name) {
-        if (!symbols.containsKey(name)) {
-            return null;
+        return lookupInScope(name, currentScope);
+    }
+    
+    // Lookup a symbol declared in the live scope at a level; the shadowing
+    // chain is ordered innermost first
+    private Symbol lookupInScope(String name, int scope) {
+        if (scope == 0) {
+            return globalsByName.get(name);
         }
-        
-        List<Symbol> symbolList = symbols.get(name);
-        for (int i = symbolList.size() - 1; i >= 0; i--) {
-            Symbol symbol = symbolList.get(i);
-            if (symbol.getScope() == currentScope) {
-                return symbol;
-            }
+        Symbol symbol = visible.get(name);
+        while (symbol != null && symbol.getScope() > scope) {
+            symbol = symbol.shadowed;
         }
-        
-        return null;
+        return (symbol != null && symbol.getScope() == scope) ? symbol : null;
     }
     
-    // Lookup a symbol in all accessible scopes (current and outer scopes)
+    // Lookup a symbol in all accessible scopes: the innermost declaration,
+    // so a local shadows a global of the same name (and updateValue on the
+    // name updates the local)
     public Symbol lookup(String name) {
-        if (!symbols.containsKey(name)) {
-            return null;
+        Symbol symbol = visible.get(name);
+        if (symbol == null && shared != null && shared.isFrozen()) {
+            symbol = shared.lookup(name, file);
         }
-        
-        List<Symbol> symbolList = symbols.get(name);
-        
-        // First check for global scope (always accessible)
-        for (Symbol symbol : symbolList) {
-            if (symbol.getScope() == 0) {
-                return symbol;
-            }
-        }
-        
-        // Then check for the innermost scope that has this symbol
-        for (int scope = currentScope; scope > 0; scope--) {
-            for (Symbol symbol : symbolList) {
-                if (symbol.getScope() == scope) {
-                    return symbol;
-                }
-            }
-        }
-        
-        return null;
+        return symbol;
     }
     
-    // Update a symbol's value
+    // Update the value of the symbol lookup(name) returns, by replacing it
+    // with a copy: symbols already handed out, and snapshots, keep the old
+    // value. Another file's global can only be read here, and the shared
+    // scope keeps the value this file's globals were declared with.
     public boolean updateValue(String name, Object value) {
-        Symbol symbol = lookup(name);
+        Symbol symbol = visible.get(name);
         if (symbol == null) {
             return false;
         }
@@ -186,43 +204,206 @@ public class SymbolTable {
             return false; // Cannot update constants
         }
         
-        symbol.setValue(value);
+        Symbol updated = symbol.withValue(value);
+        visible = visible.put(name, updated);
+        if (symbol.getScope() == 0) {
+            globalsByName = globalsByName.put(name, updated);
+        }
+        valuesUpdated = true;
         return true;
     }
     
-    // Get all symbols from the table
+    // Get all symbols from the table: live scopes, then archived ones
     public List<Symbol> getAllSymbols() {
-        List<Symbol> allSymbols = new ArrayList<>();
-        for (List<Symbol> symbolList : symbols.values()) {
-            allSymbols.addAll(symbolList);
-        }
-        return allSymbols;
+        return allSymbols(globals, globalCount, top, archived, archivedSize, currentNames());
+    }
+    
+    // The name maps to look declarations up in, or null while every
+    // symbol is still as declared
+    private Names currentNames() {
+        return valuesUpdated ? new Names(visible, globalsByName) : null;
     }
     
     // Get symbols from the current scope
     public List<Symbol> getCurrentScopeSymbols() {
-        List<Symbol> scopeSymbols = new ArrayList<>();
-        for (List<Symbol> symbolList : symbols.values()) {
-            for (Symbol symbol : symbolList) {
-                if (symbol.getScope() == currentScope) {
-                    scopeSymbols.add(symbol);
-                }
+        return getScopeSymbols(currentScope);
+    }
+    
+    // Get symbols from the live scope at a level (0 to getCurrentScope())
+    public List<Symbol> getScopeSymbols(int scope) {
+        Names names = currentNames();
+        if (scope == 0) {
+            return current(new ArrayList<>(Arrays.asList(globals).subList(0, globalCount)), names);
+        }
+        if (scope < 0 || scope > currentScope) {
+            return new ArrayList<>();
+        }
+        Symbol from = (scope == currentScope) ? top : scopeBottoms[scope + 1];
+        List<Symbol> scopeSymbols = stackSlice(from, scopeBottoms[scope]);
+        Collections.reverse(scopeSymbols);
+        return current(scopeSymbols, names);
+    }
+    
+    // Symbols of exited scopes, scope by scope in the order they were exited
+    public List<Symbol> getArchivedSymbols() {
+        return new ArrayList<>(Arrays.asList(archived).subList(0, archivedSize));
+    }
+    
+    // Symbols of an exited scope by its id, or an empty list
+    public List<Symbol> getArchivedScopeSymbols(int scopeId) {
+        for (int k = 0; k < archivedScopeCount; k++) {
+            if (archivedScopeIds[k] == scopeId) {
+                return new ArrayList<>(Arrays.asList(archived).subList(archivedStarts[k], archivedStarts[k + 1]));
             }
         }
-        return scopeSymbols;
+        return new ArrayList<>();
     }
     
-    // Get symbols from a specific scope
-    public List<Symbol> getScopeSymbols(int scope) {
-        List<Symbol> scopeSymbols = new ArrayList<>();
-        for (List<Symbol> symbolList : symbols.values()) {
-            for (Symbol symbol : symbolList) {
-                if (symbol.getScope() == scope) {
-                    scopeSymbols.add(symbol);
-                }
+    // Number of exited scopes kept by archiving
+    public int getArchivedScopeCount() {
+        return archivedScopeCount;
+    }
+    
+    // Read-only view of the table as it is now, in O(1)
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+    
+    // The table at the time snapshot() was called. Later changes to the
+    // table, values included, do not show through, and any thread can use
+    // it without locking.
+    public static final class Snapshot {
+        private final PersistentMap<String, Symbol> visible;
+        private final Names names; // null if no value was updated by then
+        private final Symbol[] globals;
+        private final int globalCount;
+        private final Symbol top;
+        private final Symbol[] archived;
+        private final int archivedSize;
+        private final int currentScope;
+        private final int currentScopeId;
+        private final GlobalSymbolTable shared; // null unless frozen by then
+        private final int file;
+        
+        private Snapshot(SymbolTable table) {
+            this.visible = table.visible;
+            this.names = table.currentNames();
+            this.globals = table.globals;
+            this.globalCount = table.globalCount;
+            this.top = table.top;
+            this.archived = table.archived;
+            this.archivedSize = table.archivedSize;
+            this.currentScope = table.currentScope;
+            this.currentScopeId = table.getCurrentScopeId();
+            this.shared = (table.shared != null && table.shared.isFrozen()) ? table.shared : null;
+            this.file = table.file;
+        }
+        
+        // The innermost declaration of a name visible at the time
+        public Symbol lookup(String name) {
+            Symbol symbol = visible.get(name);
+            if (symbol == null && shared != null) {
+                symbol = shared.lookup(name, file);
+            }
+            return symbol;
+        }
+        
+        public int getCurrentScope() {
+            return currentScope;
+        }
+        
+        public int getCurrentScopeId() {
+            return currentScopeId;
+        }
+        
+        // The innermost symbol of every visible name
+        public List<Symbol> getVisibleSymbols() {
+            List<Symbol> symbols = new ArrayList<>(visible.size());
+            visible.forEach((name, symbol) -> symbols.add(symbol));
+            return symbols;
+        }
+        
+        // Every symbol the table held: live scopes, then archived ones
+        public List<Symbol> getAllSymbols() {
+            return allSymbols(globals, globalCount, top, archived, archivedSize, names);
+        }
+    }
+    
+    // The name maps of a table at some point, for finding the current copy
+    // of a declaration
+    private static final class Names {
+        private final PersistentMap<String, Symbol> visible;
+        private final PersistentMap<String, Symbol> globalsByName;
+        
+        Names(PersistentMap<String, Symbol> visible, PersistentMap<String, Symbol> globalsByName) {
+            this.visible = visible;
+            this.globalsByName = globalsByName;
+        }
+        
+        // The copy of a live declaration that updateValue left in the maps:
+        // a global by name, a nested symbol on its name's shadowing chain
+        Symbol current(Symbol declared) {
+            if (declared.getScope() == 0) {
+                return globalsByName.get(declared.getName());
             }
+            Symbol symbol = visible.get(declared.getName());
+            while (symbol != null && symbol.getScope() > declared.getScope()) {
+                symbol = symbol.shadowed;
+            }
+            return (symbol != null && symbol.getScope() == declared.getScope()) ? symbol : declared;
+        }
+    }
+    
+    // Replace live declarations by their current copies, unless names is null
+    private static List<Symbol> current(List<Symbol> declared, Names names) {
+        if (names != null) {
+            declared.replaceAll(names::current);
+        }
+        return declared;
+    }
+    
+    private static List<Symbol> allSymbols(Symbol[] globals, int globalCount, Symbol top,
+                                           Symbol[] archived, int archivedSize, Names names) {
+        List<Symbol> live = stackSlice(top, null);
+        Collections.reverse(live);
+        List<Symbol> allSymbols = new ArrayList<>(globalCount + live.size() + archivedSize);
+        allSymbols.addAll(current(new ArrayList<>(Arrays.asList(globals).subList(0, globalCount)), names));
+        allSymbols.addAll(current(live, names));
+        allSymbols.addAll(Arrays.asList(archived).subList(0, archivedSize));
+        return allSymbols;
+    }
+    
+    // Symbols on the stack from `from` down to, not including, `bottom`
+    private static List<Symbol> stackSlice(Symbol from, Symbol bottom) {
+        List<Symbol> symbols = new ArrayList<>();
+        for (Symbol symbol = from; symbol != bottom; symbol = symbol.below) {
+            symbols.add(symbol);
+        }
+        return symbols;
+    }
+    
+    // Append the scope from top down to bottom to the archive, in the order
+    // its symbols were inserted and with their current values
+    private void archive(int scopeId, Symbol top, Symbol bottom) {
+        Names names = currentNames();
+        int count = 0;
+        for (Symbol symbol = top; symbol != bottom; symbol = symbol.below) {
+            count++;
+        }
+        if (archivedSize + count > archived.length) {
+            archived = Arrays.copyOf(archived, Math.max(archived.length * 2, archivedSize + count));
+        }
+        int i = archivedSize + count;
+        for (Symbol symbol = top; symbol != bottom; symbol = symbol.below) {
+            archived[--i] = (names != null) ? names.current(symbol) : symbol;
+        }
+        archivedSize += count;
+        if (archivedScopeCount == archivedScopeIds.length) {
+            archivedScopeIds = Arrays.copyOf(archivedScopeIds, archivedScopeCount * 2);
+            archivedStarts = Arrays.copyOf(archivedStarts, archivedScopeCount * 2 + 1);
         }
-        return scopeSymbols;
+        archivedScopeIds[archivedScopeCount] = scopeId;
+        archivedStarts[++archivedScopeCount] = archivedSize;
     }
     
     // Display the entire symbol table
@@ -0,0 +1,6 @@
+// Enum for symbol types
+enum SymbolType {
+    VARIABLE,
+    FUNCTION,
+    PARAMETER
+}
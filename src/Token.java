@@ -1,34 +1,52 @@
 class Token {
     private TokenType type;
     private String lexeme;
-    private int line;
-    private int column;
-    
-    public Token(TokenType type, String lexeme, int line, int column) {
+    private int start;
+    private int length;
+    private LineIndex lines;
+
+    // A token covering source[start, start + length). Line and column are
+    // looked up in the source's line index when asked for.
+    public Token(TokenType type, String lexeme, int start, int length, LineIndex lines) {
         this.type = type;
         this.lexeme = lexeme;
-        this.line = line;
-        this.column = column;
+        this.start = start;
+        this.length = length;
+        this.lines = lines;
     }
-    
+
     public TokenType getType() {
         return type;
     }
-    
+
     public String getLexeme() {
         return lexeme;
     }
-    
+
+    // Offset of the first character in the source
+    public int getStart() {
+        return start;
+    }
+
+    // Number of source characters covered
+    public int getLength() {
+        return length;
+    }
+
+    public int getEnd() {
+        return start + length;
+    }
+
     public int getLine() {
-        return line;
+        return lines.lineOf(start);
     }
-    
+
     public int getColumn() {
-        return column;
+        return lines.columnOf(start);
     }
-    
+
     @Override
     public String toString() {
-        return String.format("%-15s %-20s line %d, col %d", type, "'" + lexeme + "'", line, column);
+        return String.format("%-15s %-20s line %d, col %d", getType(), "'" + getLexeme() + "'", getLine(), getColumn());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,345 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+// Tokens stored column-wise: the type ordinal, start offset, length and
+// LexemePool id of token i sit at index i of growable primitive arrays,
+// 13 bytes per token instead of a Token object and a String each.
+//
+// A lexeme is the source text a token covers, so it is only materialized
+// (copied out of the char[] or decoded from the UTF-8 bytes) when asked for.
+// Tokens whose lexeme was interned return the pool's canonical String
+// instead. ERROR tokens are the exception: their lexeme is the error
+// message, kept in a side map since errors are rare.
+//
+// Tokens are read by index, through a Cursor, or as a List<Token> whose
+// elements are created on access.
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 256;
+
+    private char[] chars;
+    private final ByteBuffer bytes;
+    private final LineIndex lines;
+    private final LexemePool lexemes;
+
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lexemeIds; // LexemePool id, or -1 if not interned
+    private int size;
+    private final Map<Integer, String> messages;
+
+    // Tokens over a char source; offsets are char offsets
+    TokenBuffer(char[] source, LineIndex lines, LexemePool lexemes) {
+        this(source, null, lines, lexemes);
+    }
+
+    // Tokens over UTF-8 bytes; offsets are byte offsets
+    TokenBuffer(ByteBuffer source, LineIndex lines, LexemePool lexemes) {
+        this(null, source, lines, lexemes);
+    }
+
+    private TokenBuffer(char[] chars, ByteBuffer bytes, LineIndex lines, LexemePool lexemes) {
+        this.chars = chars;
+        this.bytes = bytes;
+        this.lines = lines;
+        this.lexemes = lexemes;
+        this.types = new byte[INITIAL_CAPACITY];
+        this.starts = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.lexemeIds = new int[INITIAL_CAPACITY];
+        this.messages = new HashMap<>();
+    }
+
+    // Append a token covering source[start, start + length)
+    void add(TokenType type, int start, int length) {
+        add(type, start, length, -1);
+    }
+
+    // Append a token whose lexeme is interned as lexemeId
+    void add(TokenType type, int start, int length, int lexemeId) {
+        if (size == types.length) {
+            ensureCapacity(size * 2);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lexemeIds[size] = lexemeId;
+        size++;
+    }
+
+    // Append tokens [from, to) of another buffer over the same source. Its
+    // lexeme ids are translated through idMap, indexed by the other buffer's
+    // pool ids and holding ids of this buffer's pool.
+    void append(TokenBuffer other, int from, int to, int[] idMap) {
+        int count = to - from;
+        ensureCapacity(size + count);
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        for (int i = 0; i < count; i++) {
+            int id = other.lexemeIds[from + i];
+            lexemeIds[size + i] = (id >= 0) ? idMap[id] : -1;
+            if (other.types[from + i] == TokenType.ERROR.ordinal()) {
+                messages.put(size + i, other.messages.get(from + i));
+            }
+        }
+        size += count;
+    }
+
+    // Replace tokens [from, to) by all the tokens of other, which must share
+    // this buffer's pool, and add shift to the start of every token after
+    // them. Cursors and List views taken before see the new tokens.
+    void replace(int from, int to, TokenBuffer other, int shift) {
+        int count = other.size;
+        int tail = size - to;
+        int newSize = from + count + tail;
+        ensureCapacity(newSize);
+        System.arraycopy(types, to, types, from + count, tail);
+        System.arraycopy(starts, to, starts, from + count, tail);
+        System.arraycopy(lengths, to, lengths, from + count, tail);
+        System.arraycopy(lexemeIds, to, lexemeIds, from + count, tail);
+        for (int i = from + count; i < newSize; i++) {
+            starts[i] += shift;
+        }
+        System.arraycopy(other.types, 0, types, from, count);
+        System.arraycopy(other.starts, 0, starts, from, count);
+        System.arraycopy(other.lengths, 0, lengths, from, count);
+        System.arraycopy(other.lexemeIds, 0, lexemeIds, from, count);
+
+        if (!messages.isEmpty() || !other.messages.isEmpty()) {
+            Map<Integer, String> moved = new HashMap<>();
+            for (Map.Entry<Integer, String> message : messages.entrySet()) {
+                int index = message.getKey();
+                if (index < from) {
+                    moved.put(index, message.getValue());
+                } else if (index >= to) {
+                    moved.put(index - to + from + count, message.getValue());
+                }
+            }
+            for (Map.Entry<Integer, String> message : other.messages.entrySet()) {
+                moved.put(from + message.getKey(), message.getValue());
+            }
+            messages.clear();
+            messages.putAll(moved);
+        }
+        size = newSize;
+    }
+
+    // Make room for capacity tokens without growing again
+    void ensureCapacity(int capacity) {
+        if (capacity > types.length) {
+            capacity = Math.max(capacity, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lexemeIds = Arrays.copyOf(lexemeIds, capacity);
+        }
+    }
+
+    // Append an ERROR token whose lexeme is message
+    void addError(String message, int start, int length) {
+        messages.put(size, message);
+        add(TokenType.ERROR, start, length);
+    }
+
+    // Append a token built elsewhere. Its lexeme must be the source text it
+    // covers, unless it is an ERROR token.
+    void add(Token token) {
+        if (token.getType() == TokenType.ERROR) {
+            addError(token.getLexeme(), token.getStart(), token.getLength());
+        } else {
+            add(token.getType(), token.getStart(), token.getLength());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The char source, or null for tokens over UTF-8 bytes. The array may
+    // be longer than the source, which ends at the EOF token's start.
+    char[] getChars() {
+        return chars;
+    }
+
+    // Switch to a copy of the char source, for edits that outgrow the array
+    void setChars(char[] chars) {
+        this.chars = chars;
+    }
+
+    LineIndex getLineIndex() {
+        return lines;
+    }
+
+    LexemePool getLexemePool() {
+        return lexemes;
+    }
+
+    public TokenType getType(int index) {
+        checkIndex(index);
+        return TYPES[types[index]];
+    }
+
+    public int getStart(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    // LexemePool id of the lexeme, or -1 if it was not interned
+    public int getLexemeId(int index) {
+        checkIndex(index);
+        return lexemeIds[index];
+    }
+
+    public int getLine(int index) {
+        return lines.lineOf(getStart(index));
+    }
+
+    public int getColumn(int index) {
+        return lines.columnOf(getStart(index));
+    }
+
+    // The canonical String of an interned lexeme; others are copied out of
+    // the source on every call
+    public String getLexeme(int index) {
+        checkIndex(index);
+        if (lexemeIds[index] >= 0) {
+            return lexemes.get(lexemeIds[index]);
+        }
+        if (types[index] == TokenType.ERROR.ordinal()) {
+            return messages.get(index);
+        }
+        if (chars != null) {
+            return new String(chars, starts[index], lengths[index]);
+        }
+        byte[] copy = new byte[lengths[index]];
+        bytes.get(starts[index], copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+        }
+    }
+
+    // A cursor before the first token
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Read-only List view; each get() creates a Token for that index
+    public List<Token> asList() {
+        return new TokenList();
+    }
+
+    // Flyweight over the buffer: one object that is moved from token to
+    // token. It is a Token so it can be passed where one is expected, but it
+    // changes when the cursor moves, so it must not be kept.
+    public final class Cursor extends Token {
+        private int index = -1;
+
+        private Cursor() {
+            super(null, null, 0, 0, null);
+        }
+
+        // Move to the next token; false once past the last
+        public boolean next() {
+            if (index < size) {
+                index++;
+            }
+            return index < size;
+        }
+
+        public void moveTo(int index) {
+            checkIndex(index);
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getLexemeId() {
+            return TokenBuffer.this.getLexemeId(index);
+        }
+
+        @Override
+        public TokenType getType() {
+            return TokenBuffer.this.getType(index);
+        }
+
+        @Override
+        public String getLexeme() {
+            return TokenBuffer.this.getLexeme(index);
+        }
+
+        @Override
+        public int getStart() {
+            return TokenBuffer.this.getStart(index);
+        }
+
+        @Override
+        public int getLength() {
+            return TokenBuffer.this.getLength(index);
+        }
+
+        @Override
+        public int getEnd() {
+            return getStart() + getLength();
+        }
+
+        @Override
+        public int getLine() {
+            return TokenBuffer.this.getLine(index);
+        }
+
+        @Override
+        public int getColumn() {
+            return TokenBuffer.this.getColumn(index);
+        }
+    }
+
+    private class TokenList extends AbstractList<Token> implements RandomAccess {
+        @Override
+        public Token get(int index) {
+            return new BufferedToken(getType(index), getStart(index), getLength(index), index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // Token handed out by the List view; the lexeme is materialized on first use
+    private class BufferedToken extends Token {
+        private final int index;
+        private String lexeme;
+
+        BufferedToken(TokenType type, int start, int length, int index) {
+            super(type, null, start, length, lines);
+            this.index = index;
+        }
+
+        @Override
+        public String getLexeme() {
+            if (lexeme == null) {
+                lexeme = TokenBuffer.this.getLexeme(index);
+            }
+            return lexeme;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Pull-based tokenizer for sources too large to hold in memory. Characters
+// are read through a fixed-size buffer that is refilled as the scan moves
+// on; only the lexeme being matched is kept, so memory stays at the buffer
+// size (the buffer only grows if a single lexeme is longer than it).
+//
+// Produces the same tokens as LexicalAnalyser in TABLE_DRIVEN mode,
+// including the ERROR tokens, and ends with an EOF token. Line and column
+// are resolved while streaming, since there is no whole source to index
+// afterwards. The symbol table is built as tokens are pulled; it drops the
+// symbols of each scope as the scope closes, so it only holds the global
+// symbols and those of the scopes still open.
+public class TokenStream implements Iterator<Token>, Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int fill;        // buffer[0, fill) holds characters read so far
+    private int position;    // next character to scan
+    private long bufferBase; // source offset of buffer[0]
+    private boolean endOfInput;
+
+    // Line of the character at position, and source offset where it starts
+    private int line;
+    private long lineStart;
+    private boolean afterCarriageReturn;
+
+    private final ScannerTables tables;
+    private final List<LexerRules.Rule> rules;
+    private final DeclarationTracker declarations;
+    private final ArrayDeque<Token> pending;
+    private boolean finished;
+    private int errorCount;
+
+    public TokenStream(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public TokenStream(Reader reader, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive, got " + bufferSize);
+        }
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+        this.line = 1;
+        this.tables = ScannerTables.getInstance();
+        this.rules = LexerRules.getRules();
+        this.declarations = new DeclarationTracker(false);
+        this.pending = new ArrayDeque<>();
+    }
+
+    // Stream over UTF-8 bytes; malformed input decodes to U+FFFD, as
+    // new String(bytes) would
+    public static TokenStream fromChannel(ReadableByteChannel channel) {
+        return new TokenStream(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), -1));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending.isEmpty() && !finished) {
+            try {
+                scanToken();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.poll();
+    }
+
+    public SymbolTable getSymbolTable() {
+        return declarations.getSymbolTable();
+    }
+
+    // ERROR tokens produced so far
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Read more input into the buffer, first discarding what lies before
+    // keepFrom by moving the rest to the front (position moves with it).
+    // Returns false at end of input.
+    private boolean readMore(int keepFrom) throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        if (keepFrom > 0) {
+            System.arraycopy(buffer, keepFrom, buffer, 0, fill - keepFrom);
+            fill -= keepFrom;
+            position -= keepFrom;
+            bufferBase += keepFrom;
+        }
+        if (fill == buffer.length) {
+            // A single lexeme fills the buffer
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read;
+        do {
+            read = reader.read(buffer, fill, buffer.length - fill);
+        } while (read == 0);
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        fill += read;
+        return true;
+    }
+
+    // Whether buffer[position + ahead] holds a character, reading more if
+    // needed. Reading may move the buffer contents, so callers index
+    // relative to position.
+    private boolean available(int ahead) throws IOException {
+        while (position + ahead >= fill) {
+            if (!readMore(position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Consume buffer[position, end), keeping track of line starts
+    private void consumeTo(int end) {
+        for (int p = position; p < end; p++) {
+            char c = buffer[p];
+            if (c == '\n') {
+                if (!afterCarriageReturn) {
+                    line++;
+                }
+                lineStart = bufferBase + p + 1;
+                afterCarriageReturn = false;
+            } else if (c == '\r') {
+                line++;
+                lineStart = bufferBase + p + 1;
+                afterCarriageReturn = true;
+            } else {
+                afterCarriageReturn = false;
+            }
+        }
+        position = end;
+    }
+
+    // Skip whitespace and comments, as LexicalAnalyser.skipTrivia does
+    private void skipTrivia() throws IOException {
+        while (available(0)) {
+            char c = buffer[position];
+            if (Character.isWhitespace(c)) {
+                consumeTo(position + 1);
+            } else if (c == '/' && available(1) && buffer[position + 1] == '/') {
+                consumeTo(position + 2);
+                while (available(0) && buffer[position] != '\n' && buffer[position] != '\r') {
+                    consumeTo(position + 1);
+                }
+            } else if (c == '/' && available(1) && buffer[position + 1] == '*') {
+                consumeTo(position + 2);
+                while (available(0) && !(buffer[position] == '*' && available(1) && buffer[position + 1] == '/')) {
+                    consumeTo(position + 1);
+                }
+                consumeTo(Math.min(position + 2, fill));
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Scan one match and queue the tokens it produces
+    private void scanToken() throws IOException {
+        skipTrivia();
+        if (!available(0)) {
+            pending.add(newToken(TokenType.EOF, "", 0));
+            finished = true;
+            return;
+        }
+
+        // Maximal munch from position; the buffer is refilled from the token
+        // start, so the whole lexeme stays in buffer[position, acceptedEnd)
+        int[] asciiClasses = tables.getAsciiClasses();
+        int[] transitions = tables.getTransitions();
+        int[] acceptRules = tables.getAcceptRules();
+        int classCount = tables.getClassCount();
+        CompactDFA dfa = tables.getDFA();
+
+        int state = tables.getStartState();
+        int acceptedRule = -1;
+        int acceptedLength = 0;
+        for (int k = 0; available(k); k++) {
+            char c = buffer[position + k];
+            int symbolClass = (c < ScannerTables.ASCII_SIZE) ? asciiClasses[c] : dfa.classOf(c);
+            state = transitions[state * classCount + symbolClass];
+            if (state < 0) {
+                break;
+            }
+            if (acceptRules[state] >= 0) {
+                acceptedRule = acceptRules[state];
+                acceptedLength = k + 1;
+            }
+        }
+
+        if (acceptedRule < 0) {
+            // A surrogate pair is one character
+            int count = (Character.isHighSurrogate(buffer[position]) && available(1)
+                    && Character.isLowSurrogate(buffer[position + 1])) ? 2 : 1;
+            error("Unexpected character: " + new String(buffer, position, count), count);
+            return;
+        }
+
+        LexerRules.Rule rule = rules.get(acceptedRule);
+        String lexeme = (rule.getSpelling() != null)
+                ? rule.getSpelling()
+                : new String(buffer, position, acceptedLength);
+
+        if (rule.isError()) {
+            error(rule.getErrorMessage(), acceptedLength);
+        } else if (rule.getType() == TokenType.INTEGER_LITERAL && !LexicalAnalyser.fitsInInt(lexeme)) {
+            error("Invalid integer format: " + lexeme, acceptedLength);
+        } else {
+            Token token = newToken(rule.getType(), lexeme, acceptedLength);
+            consumeTo(position + acceptedLength);
+            pending.add(token);
+            String declarationError = declarations.accept(token);
+            if (declarationError != null) {
+                pending.add(new PositionedToken(TokenType.ERROR, declarationError, token.getStart(),
+                        token.getLength(), token.getLine(), token.getColumn()));
+                errorCount++;
+            }
+        }
+    }
+
+    // Queue an ERROR token for the next length characters and consume them
+    private void error(String message, int length) {
+        pending.add(newToken(TokenType.ERROR, message, length));
+        errorCount++;
+        consumeTo(position + length);
+    }
+
+    // Token at position, which must not be consumed yet
+    private Token newToken(TokenType type, String lexeme, int length) {
+        long start = bufferBase + position;
+        return new PositionedToken(type, lexeme, (int) Math.min(start, Integer.MAX_VALUE), length,
+                line, (int) Math.min(start - lineStart + 1, Integer.MAX_VALUE));
+    }
+
+    // Token whose line and column were resolved when it was scanned. Offsets
+    // past Integer.MAX_VALUE are clamped; line and column stay exact.
+    private static class PositionedToken extends Token {
+        private final int line;
+        private final int column;
+
+        PositionedToken(TokenType type, String lexeme, int start, int length, int line, int column) {
+            super(type, lexeme, start, length, null);
+            this.line = line;
+            this.column = column;
+        }
+
+        @Override
+        public int getLine() {
+            return line;
+        }
+
+        @Override
+        public int getColumn() {
+            return column;
+        }
+    }
+}
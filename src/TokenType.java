@@ -0,0 +1,60 @@
+// Enum for token types
+enum TokenType {
+    // Keywords
+    NUM,        // Integer
+    DECI,       // Decimal number
+    LETTER,     // Character
+    COND,       // Boolean
+
+    // Literals
+    INTEGER_LITERAL,
+    DECIMAL_LITERAL,
+    CHARACTER_LITERAL,
+    BOOLEAN_LITERAL,
+
+    // Identifiers
+    IDENTIFIER,
+
+    // Operators
+    PLUS,           // +
+    MINUS,          // -
+    MULTIPLY,       // *
+    DIVIDE,         // /
+    MODULO,         // %
+    EXPONENT,       // ^
+
+    // Assignment
+    ASSIGN,         // =
+
+    // Comparison
+    EQUAL,          // ==
+    NOT_EQUAL,      // !=
+    LESS_THAN,      // <
+    GREATER_THAN,   // >
+    LESS_EQUAL,     // <=
+    GREATER_EQUAL,  // >=
+
+    // Logical operators
+    AND,            // &&
+    OR,             // ||
+    NOT,            // !
+
+    // Delimiters
+    LPAREN,         // (
+    RPAREN,         // )
+    LBRACE,         // {
+    RBRACE,         // }
+    SEMICOLON,      // ;
+    COMMA,          // ,
+
+    // Input/Output
+    INPUT,          // read
+    OUTPUT,         // print
+
+    // Comments
+    COMMENT,
+
+    // Special
+    EOF,            // End of file
+    ERROR           // Error token
+}
@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// BatchLexer.collectFiles over a small temporary tree: directories are
+// searched recursively, "**/" matches zero or more directories (so
+// "src/**/*.iq" includes src/a.iq), only .iq files are picked up by a
+// directory, and a pattern that matches nothing gives no files.
+//
+//   java BatchLexerTest
+public class BatchLexerTest {
+    public static void main(String[] args) throws IOException {
+        int checks = 0;
+
+        Path root = Files.createTempDirectory("batchlexer");
+        try {
+            Path src = root.resolve("src");
+            Files.createDirectories(src.resolve("sub/deep"));
+            for (String file : new String[] {"a.iq", "notes.txt", "sub/b.iq", "sub/deep/c.iq"}) {
+                Files.write(src.resolve(file), "num x;\n".getBytes());
+            }
+
+            String base = src.toString() + "/";
+            checks += expectFiles(src, "a directory", List.of(src.toString()),
+                    "a.iq", "sub/b.iq", "sub/deep/c.iq");
+            checks += expectFiles(src, "**/ at the top", List.of(base + "**/*.iq"),
+                    "a.iq", "sub/b.iq", "sub/deep/c.iq");
+            checks += expectFiles(src, "a single *", List.of(base + "*.iq"),
+                    "a.iq");
+            checks += expectFiles(src, "**/ before a directory name", List.of(base + "**/deep/*.iq"),
+                    "sub/deep/c.iq");
+            checks += expectFiles(src, "two **/", List.of(base + "**/sub/**/*.iq"),
+                    "sub/b.iq", "sub/deep/c.iq");
+            checks += expectFiles(src, "a plain file and an overlapping pattern",
+                    List.of(base + "a.iq", base + "**/*.iq"),
+                    "a.iq", "sub/b.iq", "sub/deep/c.iq");
+            checks += expectFiles(src, "a pattern matching nothing", List.of(base + "**/*.iqx"));
+        } finally {
+            try (Stream<Path> walk = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        LexerTestSupport.finish("BatchLexerTest", checks);
+    }
+
+    // Check collectFiles(inputs) against the expected paths under src
+    private static int expectFiles(Path src, String what, List<String> inputs, String... expected)
+            throws IOException {
+        List<String> actual = new ArrayList<>();
+        for (Path path : BatchLexer.collectFiles(inputs)) {
+            actual.add(src.relativize(path).toString());
+        }
+        LexerTestSupport.expectEqual(what, Arrays.asList(expected).toString(), actual.toString());
+        return 1;
+    }
+}
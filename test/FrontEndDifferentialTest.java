@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// ByteScanner and TokenStream against LexicalAnalyser. Each source is
+// encoded to UTF-8 (random malformed byte sequences included) and the
+// bytes go to ByteScanner; LexicalAnalyser and TokenStream get the text
+// the bytes decode to. All three must find the same tokens and errors
+// (type, lexeme, line and column; ByteScanner offsets count bytes, so
+// offsets are only compared with TokenStream), and ByteScanner the same
+// error messages and symbol table.
+//
+//   java FrontEndDifferentialTest [random sources]
+public class FrontEndDifferentialTest {
+    // Byte sequences that are not valid UTF-8: a stray continuation byte,
+    // truncated 2-, 3- and 4-byte sequences, an overlong form, an encoded
+    // surrogate and bytes that never appear
+    private static final byte[][] MALFORMED = {
+        { (byte) 0x80 }, { (byte) 0xc3 }, { (byte) 0xe2, (byte) 0x82 }, { (byte) 0xf0, (byte) 0x9f, (byte) 0x98 },
+        { (byte) 0xc0, (byte) 0xaf }, { (byte) 0xed, (byte) 0xa0, (byte) 0x80 }, { (byte) 0xff }, { (byte) 0xf8 },
+    };
+
+    public static void main(String[] args) throws IOException {
+        int randomCount = (args.length > 0) ? Integer.parseInt(args[0]) : 3000;
+
+        List<byte[]> sources = new ArrayList<>();
+        for (String source : LexerTestSupport.readSources("src")) {
+            sources.add(source.getBytes(StandardCharsets.UTF_8));
+        }
+        sources.add("letter c = '😀'; 😀 '😀".getBytes(StandardCharsets.UTF_8));
+        Random random = new Random(20240602);
+        for (int i = 0; i < randomCount; i++) {
+            byte[] bytes = LexerTestSupport.randomSource(random, 60).getBytes(StandardCharsets.UTF_8);
+            sources.add((i % 3 == 0) ? withMalformed(bytes, random) : bytes);
+        }
+
+        int checks = 0;
+        for (byte[] bytes : sources) {
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            String what = "\"" + LexerTestSupport.escape(text) + "\"";
+            LexicalAnalyser lexer = new LexicalAnalyser(text);
+            List<Token> expected = lexer.tokenize();
+
+            ByteScanner byteScanner = new ByteScanner(ByteBuffer.wrap(bytes));
+            List<Token> byteTokens = byteScanner.tokenize();
+            LexerTestSupport.expectEqual("ByteScanner tokens on " + what,
+                    withoutOffsets(expected), withoutOffsets(byteTokens));
+            LexerTestSupport.expectEqual("ByteScanner errors on " + what,
+                    LexerTestSupport.describeLines(lexer.getErrors()),
+                    LexerTestSupport.describeLines(byteScanner.getErrors()));
+            LexerTestSupport.expectEqual("ByteScanner symbols on " + what,
+                    LexerTestSupport.describeSymbols(lexer.getSymbolTable().getAllSymbols()),
+                    LexerTestSupport.describeSymbols(byteScanner.getSymbolTable().getAllSymbols()));
+
+            List<Token> streamed = new ArrayList<>();
+            try (TokenStream stream = new TokenStream(new StringReader(text), 1 + random.nextInt(16))) {
+                while (stream.hasNext()) {
+                    streamed.add(stream.next());
+                }
+            }
+            LexerTestSupport.expectEqual("TokenStream tokens on " + what,
+                    LexerTestSupport.describeTokens(expected), LexerTestSupport.describeTokens(streamed));
+            checks += 4;
+        }
+        LexerTestSupport.finish("FrontEndDifferentialTest", checks);
+    }
+
+    // Tokens as type, lexeme, line and column
+    private static String withoutOffsets(List<Token> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (Token token : tokens) {
+            sb.append(token.getType()).append(' ').append(LexerTestSupport.escape(token.getLexeme()))
+              .append(' ').append(token.getLine()).append(':').append(token.getColumn()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // bytes with a malformed sequence inserted at a random point
+    private static byte[] withMalformed(byte[] bytes, Random random) {
+        byte[] malformed = MALFORMED[random.nextInt(MALFORMED.length)];
+        int at = random.nextInt(bytes.length + 1);
+        byte[] result = new byte[bytes.length + malformed.length];
+        System.arraycopy(bytes, 0, result, 0, at);
+        System.arraycopy(malformed, 0, result, at, malformed.length);
+        System.arraycopy(bytes, at, result, at + malformed.length, bytes.length - at);
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// IncrementalLexer.relex against lexing the edited text from scratch: after
+// every edit in a chain of random ones, the re-lexed buffer must hold the
+// same tokens (type, lexeme, offsets, line and column) as lex on the new
+// text. Edits insert, delete and replace at random offsets, with text that
+// opens and closes comments and literals, breaks lines and splits
+// surrogate pairs.
+//
+//   java IncrementalLexerTest [sources] [edits per source]
+public class IncrementalLexerTest {
+    public static void main(String[] args) throws IOException {
+        int sourceCount = (args.length > 0) ? Integer.parseInt(args[0]) : 400;
+        int editCount = (args.length > 1) ? Integer.parseInt(args[1]) : 25;
+
+        List<String> sources = new ArrayList<>(LexerTestSupport.readSources("src"));
+        Random random = new Random(20240604);
+        for (int i = 0; i < sourceCount; i++) {
+            sources.add((i % 4 == 0)
+                    ? LexerTestSupport.randomProgram(random, 100)
+                    : LexerTestSupport.randomSource(random, 200));
+        }
+
+        int checks = 0;
+        for (String source : sources) {
+            StringBuilder text = new StringBuilder(source);
+            TokenBuffer tokens = IncrementalLexer.lex(source);
+            for (int e = 0; e < editCount; e++) {
+                int offset = random.nextInt(text.length() + 1);
+                int removed = (random.nextInt(3) == 0) ? 0 : random.nextInt(Math.min(text.length() - offset, 12) + 1);
+                String inserted = (random.nextInt(3) == 0) ? "" : LexerTestSupport.randomSource(random, 3);
+                String before = LexerTestSupport.escape(text.toString());
+
+                text.replace(offset, offset + removed, inserted);
+                tokens = IncrementalLexer.relex(tokens, offset, removed, inserted);
+                LexerTestSupport.expectEqual("relex of \"" + before + "\" replacing " + removed
+                                + " chars at " + offset + " by \"" + LexerTestSupport.escape(inserted) + "\"",
+                        LexerTestSupport.describeTokens(IncrementalLexer.lex(text.toString()).asList()),
+                        LexerTestSupport.describeTokens(tokens.asList()));
+                checks++;
+            }
+        }
+        LexerTestSupport.finish("IncrementalLexerTest", checks);
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Shared by the tests in this directory. The project has no test framework,
+// so each test is a program: it runs its checks, prints the first few
+// mismatches with what was expected, and exits with status 1 if any failed.
+//
+//   javac -encoding UTF-8 -d out src/*.java test/*.java
+//   java -cp out ScannerDifferentialTest
+final class LexerTestSupport {
+    private static final int MAX_REPORTED = 5;
+
+    // Pieces random sources are made of: every kind of token, malformed
+    // literals, comments, line breaks of each kind, and characters that
+    // have tripped scanners before (NUL, non-ASCII digits and letters, lone
+    // and paired surrogates)
+    private static final String[] PIECES = {
+        "num", "deci", "letter", "cond", "true", "false", "read", "print",
+        "a", "b", "x", "abc", "numx", "value", "readx",
+        "0", "7", "42", "2147483647", "2147483648", "99999999999", "3.14", "0.5", "1.", "12.",
+        "'a'", "'\\n'", "'\\''", "''", "'ab'", "'", "'\\", "' '",
+        "+", "-", "*", "/", "%", "^", "=", "==", "!=", "!", "<", "<=", ">", ">=",
+        "&&", "&", "||", "|", "(", ")", "{", "}", "{", "}", ";", ";", ",",
+        "// line comment\n", "/* block */", "/* open", "/", "*/",
+        " ", " ", " ", "\n", "\r\n", "\r", "\t",
+        "\0", "٣", "é", "😀", "\uD800", "\uDC00", "@", "#", "A", "_", ".", " ",
+    };
+
+    private static int failures;
+
+    private LexerTestSupport() {
+    }
+
+    // A random source of up to maxPieces pieces
+    static String randomSource(Random random, int maxPieces) {
+        StringBuilder sb = new StringBuilder();
+        int pieces = random.nextInt(maxPieces + 1);
+        for (int i = 0; i < pieces; i++) {
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+            if (random.nextInt(3) == 0) {
+                sb.append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    // A declaration-heavy program of the given number of lines, valid apart
+    // from the redeclarations and undeclared names chance brings
+    static String randomProgram(Random random, int lines) {
+        String[] types = { "num", "deci", "letter", "cond" };
+        String[] values = { "1", "2.5", "'c'", "true" };
+        StringBuilder sb = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < lines; i++) {
+            int kind = random.nextInt(6);
+            String name = String.valueOf((char) ('a' + random.nextInt(8)));
+            if (kind == 0) {
+                sb.append("{\n");
+                depth++;
+            } else if (kind == 1 && depth > 0) {
+                sb.append("}\n");
+                depth--;
+            } else if (kind <= 3) {
+                int type = random.nextInt(types.length);
+                sb.append(types[type]).append(' ').append(name).append(" = ").append(values[type]).append(";\n");
+            } else {
+                sb.append(name).append(" = ").append(name).append(" + ").append(random.nextInt(100)).append(";\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    // The .iq files in dir, or none if it does not exist
+    static List<String> readSources(String dir) throws IOException {
+        List<String> sources = new ArrayList<>();
+        Path path = Paths.get(dir);
+        if (!Files.isDirectory(path)) {
+            return sources;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*.iq")) {
+            for (Path file : files) {
+                sources.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        return sources;
+    }
+
+    // One line per token: type, lexeme, offsets and line and column
+    static String describeTokens(List<Token> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (Token token : tokens) {
+            sb.append(token.getType()).append(' ').append(escape(token.getLexeme()))
+              .append(" @").append(token.getStart()).append('+').append(token.getLength())
+              .append(' ').append(token.getLine()).append(':').append(token.getColumn()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String describeLines(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(escape(line)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // One line per symbol, in table order
+    static String describeSymbols(List<Symbol> symbols) {
+        StringBuilder sb = new StringBuilder();
+        for (Symbol symbol : symbols) {
+            sb.append(symbol.getName()).append(' ').append(symbol.getDataType())
+              .append(" scope ").append(symbol.getScope()).append('#').append(symbol.getScopeId())
+              .append(" at ").append(symbol.getLine()).append(':').append(symbol.getColumn()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Record a failure unless actual equals expected, showing the first line that differs
+    static void expectEqual(String what, String expected, String actual) {
+        if (expected.equals(actual)) {
+            return;
+        }
+        failures++;
+        if (failures > MAX_REPORTED) {
+            return;
+        }
+        String[] expectedLines = expected.split("\n", -1);
+        String[] actualLines = actual.split("\n", -1);
+        int line = 0;
+        while (line < expectedLines.length && line < actualLines.length
+                && expectedLines[line].equals(actualLines[line])) {
+            line++;
+        }
+        System.out.println("FAIL " + what + ", line " + (line + 1) + ":");
+        System.out.println("  expected: " + (line < expectedLines.length ? expectedLines[line] : "<end>"));
+        System.out.println("  actual:   " + (line < actualLines.length ? actualLines[line] : "<end>"));
+    }
+
+    static void expect(boolean condition, String what) {
+        if (!condition) {
+            failures++;
+            if (failures <= MAX_REPORTED) {
+                System.out.println("FAIL " + what);
+            }
+        }
+    }
+
+    // Print the verdict and exit with status 1 on failure
+    static void finish(String test, int checks) {
+        if (failures > 0) {
+            System.out.println(test + ": " + failures + " of " + checks + " checks failed");
+            System.exit(1);
+        }
+        System.out.println(test + ": " + checks + " checks passed");
+    }
+
+    // Source text shown with control and non-ASCII characters escaped
+    static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= ' ' && c < 0x7f) {
+                sb.append(c);
+            } else {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,72 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// LineIndex over chars and over UTF-8 bytes. offsetOf must invert lineOf
+// and columnOf at every character of random sources, and a column past
+// the end of a line must stop at the line's terminator rather than run
+// into the next line: offsetOf(1, 10) on "ab\ncd" is 2, not 3.
+//
+//   java LineIndexTest [random sources]
+public class LineIndexTest {
+    public static void main(String[] args) {
+        int randomCount = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int checks = 0;
+
+        // Clamping, for each kind of line break: source, line, column, offset
+        Object[][] clamped = {
+            { "ab\ncd", 1, 10, 2 }, { "ab\r\ncd", 1, 10, 2 }, { "ab\rcd", 1, 10, 2 },
+            { "ab\ncd", 2, 10, 5 }, { "ab\ncd", 9, 1, 3 }, { "ab\ncd", 0, 2, 1 },
+            { "ab\n\ncd", 2, 5, 3 }, { "ab\r\n\r\ncd", 2, 5, 4 }, { "ab\n", 2, 3, 3 },
+            { "a😀\nb", 1, 9, 3 }, { "é\ncd", 1, 4, 1 },
+        };
+        for (Object[] c : clamped) {
+            String source = (String) c[0];
+            int line = (Integer) c[1];
+            int column = (Integer) c[2];
+            int expected = (Integer) c[3];
+            LineIndex chars = new LineIndex(source.toCharArray());
+            LexerTestSupport.expect(chars.offsetOf(line, column) == expected,
+                    "offsetOf(" + line + ", " + column + ") on \"" + LexerTestSupport.escape(source)
+                            + "\" is " + expected + ", got " + chars.offsetOf(line, column));
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            int expectedByte = source.substring(0, expected).getBytes(StandardCharsets.UTF_8).length;
+            int byteOffset = new LineIndex(ByteBuffer.wrap(bytes)).offsetOf(line, column);
+            LexerTestSupport.expect(byteOffset == expectedByte,
+                    "byte offsetOf(" + line + ", " + column + ") on \"" + LexerTestSupport.escape(source)
+                            + "\" is " + expectedByte + ", got " + byteOffset);
+            checks += 2;
+        }
+
+        // Round trips at every character of random sources, but the '\n' of
+        // a "\r\n", which is inside a line break
+        Random random = new Random(20240605);
+        for (int i = 0; i < randomCount; i++) {
+            String source = LexerTestSupport.randomSource(random, 40);
+            char[] text = source.toCharArray();
+            LineIndex chars = new LineIndex(text);
+            boolean ok = true;
+            for (int p = 0; p <= text.length && ok; p++) {
+                ok = insideCrLf(source, p) || chars.offsetOf(chars.lineOf(p), chars.columnOf(p)) == p;
+            }
+            LexerTestSupport.expect(ok, "char round trip on \"" + LexerTestSupport.escape(source) + "\"");
+
+            ByteBuffer bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+            LineIndex byteLines = new LineIndex(bytes);
+            ok = true;
+            for (int p = 0; p <= bytes.limit() && ok; ) {
+                ok = (p > 0 && p < bytes.limit() && bytes.get(p - 1) == '\r' && bytes.get(p) == '\n')
+                        || byteLines.offsetOf(byteLines.lineOf(p), byteLines.columnOf(p)) == p;
+                p += (p < bytes.limit()) ? Math.abs(ByteScanner.sequenceLength(bytes, bytes.limit(), p)) : 1;
+            }
+            LexerTestSupport.expect(ok, "byte round trip on \"" + LexerTestSupport.escape(source) + "\"");
+            checks += 2;
+        }
+        LexerTestSupport.finish("LineIndexTest", checks);
+    }
+
+    // Whether p is the '\n' of a "\r\n" in source
+    private static boolean insideCrLf(String source, int p) {
+        return p > 0 && p < source.length() && source.charAt(p - 1) == '\r' && source.charAt(p) == '\n';
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.Set;
+
+// Epsilon closures stay correct while Thompson combinators keep adding
+// edges to shared states. An NFA caches every closure; a later combinator
+// given one of its operands adds edges the earlier NFA's cache has not
+// seen, and the earlier NFA (or a FrozenNFA made from it) must see them.
+//
+//   java NFAClosureTest
+public class NFAClosureTest {
+    public static void main(String[] args) {
+        int checks = 0;
+
+        // ab, then b reused as the first operand of bc: the edge from b's
+        // accept state to c's start is new to ab's cache
+        NFA a = NFA.fromSymbol('a');
+        NFA b = NFA.fromSymbol('b');
+        NFA c = NFA.fromSymbol('c');
+        NFA ab = NFA.concatenate(a, b);
+        Set<State> before = ab.getEpsilonClosure(b.getAcceptState());
+        LexerTestSupport.expect(!before.contains(c.getStartState()), "ab: c is not reachable yet");
+        NFA.concatenate(b, c);
+        LexerTestSupport.expect(ab.getEpsilonClosure(b.getAcceptState()).contains(c.getStartState()),
+                "ab sees the edge bc added to b's accept state");
+        LexerTestSupport.expect(ab.getEpsilonClosure(ab.getStartState()).size() == 1,
+                "ab's start state closure is unchanged");
+        checks += 3;
+
+        // x*, then x used again in a union: x's accept state gains an edge
+        // to the union's accept state after x* cached its closures
+        NFA x = NFA.fromSymbol('x');
+        NFA star = NFA.kleeneStar(x);
+        star.getEpsilonClosure(star.getStartState());
+        NFA either = NFA.union(x, NFA.fromSymbol('y'));
+        LexerTestSupport.expect(star.getEpsilonClosure(x.getAcceptState()).contains(either.getAcceptState()),
+                "x* sees the edge the union added to x's accept state");
+        checks++;
+
+        // A FrozenNFA takes its closures from the cache, which must not be
+        // stale: ab with a loop from b's accept state back to the start
+        // added after the closures were cached is (ab)+
+        NFA loop = NFA.fromString("ab");
+        loop.getEpsilonClosure(loop.getStartState());
+        loop.getAcceptState().addEpsilonTransition(loop.getStartState());
+        FrozenNFA frozen = loop.freeze();
+        LexerTestSupport.expect(frozen.matches("ab") && frozen.matches("abab"), "the frozen NFA matches (ab)+");
+        LexerTestSupport.expect(!frozen.matches("aba"), "the frozen NFA does not match aba");
+        checks += 2;
+
+        LexerTestSupport.finish("NFAClosureTest", checks);
+    }
+}
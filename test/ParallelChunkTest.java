@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// PARALLEL tokenization at every chunk count from 1 to 1000 against
+// TABLE_DRIVEN: however the source is cut, stitching the chunks back
+// together must give the same tokens (type, lexeme, offsets, line and
+// column), errors and symbol table. Comments, literals and line breaks
+// that straddle a chunk boundary are what the random sources exercise.
+//
+//   java ParallelChunkTest [random sources] [max chunks]
+public class ParallelChunkTest {
+    public static void main(String[] args) throws IOException {
+        int randomCount = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        int maxChunks = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+
+        List<String> sources = new ArrayList<>(LexerTestSupport.readSources("src"));
+        Random random = new Random(20240603);
+        for (int i = 0; i < randomCount; i++) {
+            sources.add((i % 2 == 0)
+                    ? LexerTestSupport.randomSource(random, 2000)
+                    : LexerTestSupport.randomProgram(random, 400));
+        }
+
+        int checks = 0;
+        for (String source : sources) {
+            LexicalAnalyser reference = new LexicalAnalyser(source, ScanMode.TABLE_DRIVEN);
+            String expected = describe(reference, reference.tokenizeToBuffer().asList());
+            for (int chunkCount = 1; chunkCount <= maxChunks; chunkCount++) {
+                LexicalAnalyser lexer = new LexicalAnalyser(source, ScanMode.PARALLEL);
+                String actual = describe(lexer, lexer.tokenizeParallel(chunkCount).asList());
+                LexerTestSupport.expectEqual(chunkCount + " chunks on a source of " + source.length() + " chars",
+                        expected, actual);
+                checks++;
+            }
+        }
+        LexerTestSupport.finish("ParallelChunkTest", checks);
+    }
+
+    // Everything a scan produced, as text
+    private static String describe(LexicalAnalyser lexer, List<Token> tokens) {
+        return "tokens:\n" + LexerTestSupport.describeTokens(tokens)
+                + "errors:\n" + LexerTestSupport.describeLines(lexer.getErrors())
+                + "symbols:\n" + LexerTestSupport.describeSymbols(lexer.getSymbolTable().getAllSymbols());
+    }
+}
@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// The DFA scan modes against the hand-written scanner: for every source,
+// TABLE_DRIVEN, LAZY_DFA, GENERATED and PARALLEL must produce the same
+// tokens (type, lexeme, offsets, line and column), the same errors and the
+// same symbol table as HAND_WRITTEN.
+//
+//   java ScannerDifferentialTest [random sources]
+//
+// Sources are the sample programs in src/ plus random ones built from
+// token fragments, malformed literals, NULs, non-ASCII digits and
+// surrogates, and random declaration-heavy programs.
+public class ScannerDifferentialTest {
+    private static final ScanMode[] DFA_MODES = {
+        ScanMode.TABLE_DRIVEN, ScanMode.LAZY_DFA, ScanMode.GENERATED, ScanMode.PARALLEL
+    };
+
+    public static void main(String[] args) throws IOException {
+        int randomCount = (args.length > 0) ? Integer.parseInt(args[0]) : 3000;
+
+        List<String> sources = new ArrayList<>(LexerTestSupport.readSources("src"));
+        // The inputs the modes used to disagree on
+        sources.add("num a = 1;\0 a = 2;");
+        sources.add("\0");
+        sources.add("letter c = '\0';");
+        sources.add("num n = ٣;");
+        sources.add("num n = 1٣.5;");
+        Random random = new Random(20240601);
+        for (int i = 0; i < randomCount; i++) {
+            sources.add(LexerTestSupport.randomSource(random, 60));
+            if (i % 10 == 0) {
+                sources.add(LexerTestSupport.randomProgram(random, 200));
+            }
+        }
+
+        int checks = 0;
+        for (String source : sources) {
+            String expected = describe(source, ScanMode.HAND_WRITTEN);
+            for (ScanMode mode : DFA_MODES) {
+                LexerTestSupport.expectEqual(mode + " on \"" + abbreviate(source) + "\"",
+                        expected, describe(source, mode));
+                checks++;
+            }
+        }
+        LexerTestSupport.finish("ScannerDifferentialTest", checks);
+    }
+
+    // Everything a scan produces, as text
+    private static String describe(String source, ScanMode mode) {
+        LexicalAnalyser lexer = new LexicalAnalyser(source, mode);
+        List<Token> tokens = lexer.tokenize();
+        return "tokens:\n" + LexerTestSupport.describeTokens(tokens)
+                + "errors:\n" + LexerTestSupport.describeLines(lexer.getErrors())
+                + "symbols:\n" + LexerTestSupport.describeSymbols(lexer.getSymbolTable().getAllSymbols());
+    }
+
+    private static String abbreviate(String source) {
+        String escaped = LexerTestSupport.escape(source);
+        return (escaped.length() > 60) ? escaped.substring(0, 60) + "..." : escaped;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// SymbolTable name resolution: lookup returns the innermost declaration of
+// a name, so a local shadows a global (the table once returned the global
+// first), updateValue changes the symbol lookup returns, and exiting the
+// block brings the outer declaration back with its own value. Snapshots
+// resolve names, and see values, as the table had them when they were
+// taken. Reference ids belong to one scope tree, and ScopeTree.visibleAt
+// agrees with a walk over the scopes that tracks the names seen.
+//
+//   java SymbolTableTest
+public class SymbolTableTest {
+    public static void main(String[] args) {
+        int checks = 0;
+
+        SymbolTable table = new SymbolTable();
+        table.insert("x", SymbolType.VARIABLE, "num", false, true, 1, 1, 5);
+        table.insert("k", SymbolType.VARIABLE, "num", false, true, 7, 2, 5);
+        table.enterScope();
+        table.insert("x", SymbolType.VARIABLE, "num", false, false, 2, 4, 9);
+        table.insert("k", SymbolType.VARIABLE, "num", true, false, 8, 5, 9);
+        SymbolTable.Snapshot inBlock = table.snapshot();
+
+        Symbol x = table.lookup("x");
+        LexerTestSupport.expect(x != null && x.getScope() == 1 && x.getLine() == 4,
+                "lookup of a shadowed name returns the local, got " + x);
+        LexerTestSupport.expect(table.updateValue("x", 3), "updateValue of the local succeeds");
+        LexerTestSupport.expect(Integer.valueOf(3).equals(table.lookup("x").getValue()),
+                "updateValue changes the local");
+        LexerTestSupport.expect(!table.updateValue("k", 9),
+                "updateValue of a name whose local is constant fails");
+        LexerTestSupport.expect(Integer.valueOf(7).equals(table.getScopeSymbols(0).get(1).getValue()),
+                "updateValue leaves a shadowed global alone");
+        LexerTestSupport.expect(Integer.valueOf(2).equals(x.getValue())
+                        && Integer.valueOf(2).equals(inBlock.lookup("x").getValue()),
+                "updateValue leaves the symbol handed out and the snapshot's symbol alone");
+        LexerTestSupport.expect(Integer.valueOf(3).equals(table.getScopeSymbols(1).get(0).getValue())
+                        && Integer.valueOf(2).equals(inBlock.getAllSymbols().get(2).getValue()),
+                "the scope lists the updated value, the snapshot the old one");
+        checks += 7;
+
+        table.exitScope();
+        LexerTestSupport.expect(Integer.valueOf(3).equals(table.getArchivedSymbols().get(0).getValue()),
+                "the exited scope is archived with the updated value");
+        Symbol global = table.lookup("x");
+        LexerTestSupport.expect(global != null && global.getScope() == 0
+                        && Integer.valueOf(1).equals(global.getValue()),
+                "after the block, lookup returns the global with its own value, got " + global);
+        LexerTestSupport.expect(table.updateValue("x", 4) && Integer.valueOf(4).equals(table.lookup("x").getValue())
+                        && Integer.valueOf(4).equals(table.getScopeSymbols(0).get(0).getValue()),
+                "after the block, updateValue changes the global");
+        Symbol snapshotX = inBlock.lookup("x");
+        LexerTestSupport.expect(snapshotX != null && snapshotX.getScope() == 1,
+                "a snapshot taken in the block still resolves to the local, got " + snapshotX);
+        LexerTestSupport.expect(Integer.valueOf(1).equals(inBlock.getAllSymbols().get(0).getValue()),
+                "a snapshot keeps the global's old value");
+        checks += 5;
+
+        // The same through the scanner: the assignment inside the block
+        // resolves to the local, the one after it to the global
+        LexicalAnalyser lexer = new LexicalAnalyser("num x = 1;\n{\n    deci x = 2.5;\n    x = x;\n}\nx = x;\n");
+        lexer.tokenize();
+        ReferenceIndex references = lexer.getReferenceIndex();
+        LexerTestSupport.expect(!lexer.hasErrors(), "no errors, got " + lexer.getErrors());
+        LexerTestSupport.expect(references.getReferenceCount() == 4, "4 references");
+        for (int r = 0; r < references.getReferenceCount(); r++) {
+            int expectedScope = (r < 2) ? 1 : 0;
+            LexerTestSupport.expect(references.getDefinition(r).getScope() == expectedScope,
+                    "reference " + r + " resolves to scope " + expectedScope + ", got "
+                            + references.getDefinition(r));
+        }
+        checks += 6;
+
+        // A global seen by another file's scope tree has no id there, so
+        // references to it are dropped rather than pinned on whatever that
+        // tree declared under the same index
+        ScopeTree declaring = new ScopeTree();
+        ScopeTree other = new ScopeTree();
+        Symbol g = new Symbol("g", SymbolType.VARIABLE, "int", false, true, null, 0, 0, 1, 5);
+        Symbol h = new Symbol("h", SymbolType.VARIABLE, "int", false, true, null, 0, 0, 1, 5);
+        declaring.declare(g, 4);
+        other.declare(h, 4);
+        ReferenceIndex otherReferences = new ReferenceIndex(other);
+        otherReferences.record(g, 20);
+        otherReferences.record(h, 30);
+        LexerTestSupport.expect(declaring.idOf(g) == 0 && other.idOf(g) == -1,
+                "a symbol has an id only in the tree that declared it");
+        LexerTestSupport.expect(otherReferences.getReferenceCount() == 1
+                        && otherReferences.getDefinition(0) == h && otherReferences.getUseCount(g) == 0,
+                "a reference to another tree's symbol is dropped");
+        checks += 2;
+
+        // ScopeTree.visibleAt at every offset of random programs, against
+        // walking out of the scopes with a set of the names already seen
+        Random random = new Random(20240611);
+        for (int p = 0; p < 50; p++) {
+            String program = LexerTestSupport.randomProgram(random, 200);
+            LexicalAnalyser programLexer = new LexicalAnalyser(program);
+            programLexer.tokenize();
+            ScopeTree tree = programLexer.getScopeTree();
+            for (int offset = 0; offset <= program.length(); offset++) {
+                LexerTestSupport.expectEqual("visibleAt(" + offset + ") in program " + p,
+                        visibleByNames(tree, offset).toString(), tree.visibleAt(offset).toString());
+                checks++;
+            }
+        }
+
+        LexerTestSupport.finish("SymbolTableTest", checks);
+    }
+
+    // Innermost scope first, the symbols declared before offset whose name
+    // no inner scope has declared before it
+    private static List<Symbol> visibleByNames(ScopeTree tree, int offset) {
+        List<Symbol> visible = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (int scope = tree.scopeAt(offset); scope >= 0; scope = tree.getParent(scope)) {
+            for (Symbol symbol : tree.getScopeSymbols(scope)) {
+                if (tree.getDeclarationOffset(tree.idOf(symbol)) < offset && names.add(symbol.getName())) {
+                    visible.add(symbol);
+                }
+            }
+        }
+        return visible;
+    }
+}